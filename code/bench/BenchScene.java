@@ -0,0 +1,74 @@
+package bench;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import renderer.GUI;
+import renderer.MeshBuffer;
+import renderer.Pipeline;
+import renderer.Scene;
+import renderer.SceneLoader;
+import renderer.Vector3D;
+
+/**
+ * The scene a benchmark runs over. This is one of the data files, by name, a
+ * synthetic sphere with the given number of polygons, or "layers", eight spheres
+ * of 1000 polygons inside each other. Whichever it is, the scene is scaled and
+ * moved onto the screen the same way Renderer does it.
+ *
+ * The data folder is found from the "data" system property, or "data" in the
+ * working directory if that isn't set.
+ */
+@State(Scope.Benchmark)
+public class BenchScene {
+
+	@Param({ "ball", "bigboxes", "car", "monkey", "shapes", "tetras",
+			 "1000", "10000", "100000", "1000000", "10000000", "layers" })
+	public String scene;
+
+	/** The ambient light used by every benchmark */
+	public static final Color AMBIENT = new Color(60, 60, 60);
+
+	public static final int WIDTH = GUI.CANVAS_WIDTH, HEIGHT = GUI.CANVAS_HEIGHT;
+
+	public Scene loaded;
+
+	@Setup(Level.Trial)
+	public void load() throws IOException {
+		loaded = load(scene);
+	}
+
+	/**
+	 * Loads a scene by name, ready to be drawn
+	 */
+	public static Scene load(String name) throws IOException {
+
+		Scene scene;
+		if (name.equals("layers") || name.chars().allMatch(Character::isDigit)) {
+			// a synthetic sphere, lit from the front and a little from the side
+			Map<Vector3D, Color> lights = new LinkedHashMap<>();
+			lights.put(new Vector3D(0.2f, -0.3f, -1f), new Color(255, 255, 255));
+			lights.put(new Vector3D(-1f, 0f, -0.5f), new Color(40, 80, 160));
+			scene = Scene.fromMesh(name.equals("layers") ? SyntheticMesh.layers(1000, 8, 261)
+					: SyntheticMesh.sphere(Integer.parseInt(name), 261), lights);
+		} else {
+			File file = new File(System.getProperty("data", "data"), name + ".txt");
+			scene = SceneLoader.loadText(file, MeshBuffer.DEFAULT_WELD_EPSILON);
+		}
+
+		return Pipeline.translateScene(Pipeline.scaleScene(scene));
+
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,95 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import renderer.MeshBuffer;
+import renderer.Scene;
+import renderer.SceneLoader;
+
+/**
+ * Compares the original split based text loader against SceneParser, on the
+ * monkey with its polygons repeated lots of times.
+ *
+ * The data folder is found from the "data" system property, or "data" in the
+ * working directory if that isn't set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class LoaderBenchmark {
+
+	@Param({ "1000" })
+	public int copies;
+
+	private File file;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+
+		File monkey = new File(System.getProperty("data", "data"), "monkey.txt");
+
+		// reads the polygon lines and the light line of the monkey
+		List<String> polygons = new ArrayList<>();
+		String light;
+		try (BufferedReader br = new BufferedReader(new FileReader(monkey))) {
+			int count = Integer.parseInt(br.readLine());
+			for (int i = 0; i < count; i++)
+				polygons.add(br.readLine());
+			light = br.readLine();
+		}
+
+		// writes the polygons out again and again, so there is a big file to load
+		file = File.createTempFile("monkey", ".txt");
+		file.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(file)) {
+			out.println(polygons.size() * copies);
+			for (int c = 0; c < copies; c++)
+				for (String polygon : polygons)
+					out.println(polygon);
+			out.println(light);
+		}
+
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public Scene splitLoader() throws IOException {
+		return SceneLoader.loadTextWithSplit(file, MeshBuffer.DEFAULT_WELD_EPSILON);
+	}
+
+	@Benchmark
+	public Scene byteParser() throws IOException {
+		return SceneLoader.loadText(file, MeshBuffer.DEFAULT_WELD_EPSILON);
+	}
+
+}
+
+// code for comp261 assignments
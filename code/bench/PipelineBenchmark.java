@@ -0,0 +1,188 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import renderer.DepthBuffer;
+import renderer.EdgeFunctionRasterizer;
+import renderer.EdgeList;
+import renderer.FrameBuffer;
+import renderer.LightArray;
+import renderer.MeshBuffer;
+import renderer.Pipeline;
+import renderer.Scene;
+import renderer.SpanKernel;
+
+/**
+ * Times each stage of the pipeline on its own, over every polygon in the scene.
+ * Each benchmark is one pass of that stage over the whole scene, so the scores
+ * can be compared with RenderBenchmark to see where a frame's time goes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx3g", "-Djava.awt.headless=true" })
+public class PipelineBenchmark {
+
+	private MeshBuffer mesh;
+	private LightArray lights;
+
+	// the edge lists and colours of the visible polygons, for timing the drawing on its own
+	private EdgeList[] edgeLists;
+	private final EdgeList pooled = new EdgeList();
+	private int[] colours;
+	private int[] visibleTris;		// the index of each visible polygon in the mesh
+
+	private FrameBuffer frameBuffer;
+	private DepthBuffer depthBuffer;
+
+	// a drawn frame before its holes were filled in, copied back before each removeHoles
+	private int[] drawnPixels;
+	private float[] drawnDepths;
+
+	@Setup(Level.Trial)
+	public void setUp(BenchScene bench) {
+
+		Scene scene = bench.loaded;
+		mesh = scene.getMesh();
+		lights = scene.getLightArray();
+
+		frameBuffer = new FrameBuffer(BenchScene.WIDTH, BenchScene.HEIGHT);
+		depthBuffer = new DepthBuffer(BenchScene.WIDTH, BenchScene.HEIGHT);
+
+		int visible = 0;
+		for (int i = 0; i < mesh.getTriangleCount(); i++)
+			if (!Pipeline.isHidden(mesh, i)) visible++;
+
+		edgeLists = new EdgeList[visible];
+		colours = new int[visible];
+		visibleTris = new int[visible];
+		for (int i = 0, n = 0; i < mesh.getTriangleCount(); i++) {
+			if (Pipeline.isHidden(mesh, i)) continue;
+			visibleTris[n] = i;
+			edgeLists[n] = Pipeline.computeEdgeList(mesh, i);
+			colours[n++] = Pipeline.getShading(mesh, i, lights, BenchScene.AMBIENT);
+		}
+
+		frameBuffer.clear();
+		depthBuffer.clear();
+		for (int n = 0; n < edgeLists.length; n++)
+			Pipeline.computeZBuffer(frameBuffer, depthBuffer, edgeLists[n], colours[n]);
+		drawnPixels = frameBuffer.getPixels().clone();
+		drawnDepths = depthBuffer.getDepths().clone();
+
+	}
+
+	@Benchmark
+	public int isHidden() {
+		int hidden = 0;
+		for (int i = 0; i < mesh.getTriangleCount(); i++)
+			if (Pipeline.isHidden(mesh, i)) hidden++;
+		return hidden;
+	}
+
+	@Benchmark
+	public int getShading() {
+		int sum = 0;
+		for (int i = 0; i < mesh.getTriangleCount(); i++)
+			sum += Pipeline.getShading(mesh, i, lights, BenchScene.AMBIENT);
+		return sum;
+	}
+
+	@Benchmark
+	public void computeEdgeList(Blackhole blackhole) {
+		for (int i = 0; i < mesh.getTriangleCount(); i++)
+			blackhole.consume(Pipeline.computeEdgeList(mesh, i));
+	}
+
+	/** The same as computeEdgeList, but into one edge list that is reused, so nothing is allocated */
+	@Benchmark
+	public void computeEdgeListPooled(Blackhole blackhole) {
+		for (int i = 0; i < mesh.getTriangleCount(); i++)
+			blackhole.consume(Pipeline.computeEdgeList(mesh, i, null, pooled, 0, BenchScene.HEIGHT));
+	}
+
+	/** Draws every visible polygon, including clearing the buffers first */
+	@Benchmark
+	public int[] computeZBuffer() {
+		frameBuffer.clear();
+		depthBuffer.clear();
+		for (int n = 0; n < edgeLists.length; n++)
+			Pipeline.computeZBuffer(frameBuffer, depthBuffer, edgeLists[n], colours[n]);
+		return frameBuffer.getPixels();
+	}
+
+	/** The same as computeZBuffer, but drawn with edge functions, which need no removeHoles afterwards */
+	@Benchmark
+	public int[] halfSpace() {
+		frameBuffer.clear();
+		depthBuffer.clear();
+		int width = frameBuffer.getWidth(), height = frameBuffer.getHeight();
+		for (int n = 0; n < visibleTris.length; n++)
+			EdgeFunctionRasterizer.draw(frameBuffer.getPixels(), depthBuffer.getDepths(), width, mesh, visibleTris[n], null, colours[n],
+					0, 0, width, height, SpanKernel.SCALAR);
+		return frameBuffer.getPixels();
+	}
+
+	/** The same as computeZBuffer, but filling the scanlines with the Vector API */
+	@Benchmark
+	@Fork(value = 1, jvmArgs = { "-Xmx3g", "-Djava.awt.headless=true", "--add-modules", "jdk.incubator.vector" })
+	public int[] computeZBufferVector() {
+		SpanKernel kernel = SpanKernel.vector();
+		if (kernel == SpanKernel.SCALAR) throw new IllegalStateException("the Vector API isn't being used");
+		frameBuffer.clear();
+		depthBuffer.clear();
+		int width = frameBuffer.getWidth(), height = frameBuffer.getHeight();
+		for (int n = 0; n < edgeLists.length; n++)
+			Pipeline.computeZBuffer(frameBuffer, depthBuffer, edgeLists[n], colours[n], 0, 0, width, height, kernel);
+		return frameBuffer.getPixels();
+	}
+
+	/** Fills in the holes of a drawn frame, including copying the frame back in first */
+	@Benchmark
+	public int[] removeHoles() {
+		System.arraycopy(drawnPixels, 0, frameBuffer.getPixels(), 0, drawnPixels.length);
+		System.arraycopy(drawnDepths, 0, depthBuffer.getDepths(), 0, drawnDepths.length);
+		Pipeline.removeHoles(frameBuffer, depthBuffer);
+		return frameBuffer.getPixels();
+	}
+
+	/**
+	 * Clears the framebuffer and depth buffer. This is what is left of
+	 * convertBitmapToImage, since the framebuffer is the image and there is no
+	 * conversion to do any more.
+	 */
+	@Benchmark
+	public int[] clearBuffers() {
+		frameBuffer.clear();
+		depthBuffer.clear();
+		return frameBuffer.getPixels();
+	}
+
+	/**
+	 * Rotates the scene a little, and works out the rotated vertices. The
+	 * rotation builds up over the run, but rotating doesn't cost any more or
+	 * less depending on the angle.
+	 */
+	@Benchmark
+	public MeshBuffer rotateScene(BenchScene bench) {
+		return Pipeline.rotateScene(bench.loaded, 0.01f, 0.02f).getMesh();
+	}
+
+}
+
+// code for comp261 assignments
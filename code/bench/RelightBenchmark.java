@@ -0,0 +1,58 @@
+package bench;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import renderer.SceneRenderer;
+
+/**
+ * Times drawing a frame where only the ambient light has changed, like dragging
+ * one of the sliders. Without deferred shading this is a whole frame, with it
+ * the polygons on screen are just shaded again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx3g", "-Djava.awt.headless=true" })
+public class RelightBenchmark {
+
+	/** Whether the frame is drawn with deferred shading */
+	@Param({ "false", "true" })
+	public boolean deferred;
+
+	private SceneRenderer renderer;
+	private int frame;
+
+	@Setup(Level.Trial)
+	public void setUp(BenchScene bench) {
+		renderer = new SceneRenderer(BenchScene.WIDTH, BenchScene.HEIGHT);
+		renderer.setDeferred(deferred);
+		renderer.render(bench.loaded, BenchScene.AMBIENT);
+	}
+
+	@Benchmark
+	public BufferedImage relight(BenchScene bench) {
+		// a different ambient light every frame, so nothing can be reused
+		int level = 40 + (frame++ & 63);
+		return renderer.render(bench.loaded, new Color(level, level, level));
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,60 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import renderer.Pipeline;
+import renderer.Scene;
+import renderer.SceneRenderer;
+
+/**
+ * Times a whole frame, the same work as Renderer.render does every time the
+ * window is drawn: moving the scene to the centre of the screen, then drawing it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx3g", "-Djava.awt.headless=true" })
+public class RenderBenchmark {
+
+	/** Whether the frame is drawn one polygon at a time, or as tiles in parallel */
+	@Param({ "false", "true" })
+	public boolean tiled;
+
+	/** Whether polygons hidden behind ones already drawn are skipped */
+	@Param({ "false", "true" })
+	public boolean occlusionCulling;
+
+	private SceneRenderer renderer;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		renderer = new SceneRenderer(BenchScene.WIDTH, BenchScene.HEIGHT);
+		renderer.setTiled(tiled);
+		renderer.setOcclusionCulling(occlusionCulling);
+	}
+
+	@Benchmark
+	public BufferedImage render(BenchScene bench) {
+		Scene scene = Pipeline.translateScene(bench.loaded);
+		return renderer.render(scene, BenchScene.AMBIENT);
+	}
+
+}
+
+// code for comp261 assignments
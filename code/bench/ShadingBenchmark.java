@@ -0,0 +1,84 @@
+package bench;
+
+import java.awt.Color;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import renderer.LightArray;
+import renderer.MeshBuffer;
+import renderer.Pipeline;
+import renderer.Vector3D;
+
+/**
+ * Compares shading every polygon of a 100,000 polygon sphere with lots of
+ * lights, like the ones added with the random light button: working out each
+ * channel on its own from the map of lights (how getShading used to do it),
+ * and all three at once from the packed lights.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+public class ShadingBenchmark {
+
+	@Param({ "1", "10", "50" })
+	public int lightCount;
+
+	private MeshBuffer mesh;
+	private Map<Vector3D, Color> lights;
+	private LightArray packed;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		mesh = SyntheticMesh.sphere(100000, 261);
+
+		Random random = new Random(262);
+		lights = new LinkedHashMap<>();
+		for (int i = 0; i < lightCount; i++)
+			lights.put(new Vector3D(random.nextFloat() - random.nextFloat(), random.nextFloat() - random.nextFloat(),
+					random.nextFloat() - random.nextFloat()), new Color(random.nextInt(255), random.nextInt(255), random.nextInt(255)));
+		packed = new LightArray(lights);
+	}
+
+	@Benchmark
+	public int perChannel() {
+		int sum = 0;
+		float[] normals = mesh.getNormals();
+		for (int i = 0; i < mesh.getTriangleCount(); i++) {
+			Vector3D normal = new Vector3D(normals[i * 3], normals[i * 3 + 1], normals[i * 3 + 2]);
+			int reflectance = mesh.getColours()[i];
+			sum += Pipeline.setColor(BenchScene.AMBIENT.getRed(), ((reflectance >> 16) & 0xFF) / 255.0f, normal, lights, 0);
+			sum += Pipeline.setColor(BenchScene.AMBIENT.getGreen(), ((reflectance >> 8) & 0xFF) / 255.0f, normal, lights, 1);
+			sum += Pipeline.setColor(BenchScene.AMBIENT.getBlue(), (reflectance & 0xFF) / 255.0f, normal, lights, 2);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int packed() {
+		int sum = 0;
+		for (int i = 0; i < mesh.getTriangleCount(); i++)
+			sum += Pipeline.getShading(mesh, i, packed, BenchScene.AMBIENT);
+		return sum;
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,111 @@
+package bench;
+
+import java.util.Random;
+
+import renderer.MeshBuffer;
+
+/**
+ * Makes made up meshes of any size for the benchmarks, so the pipeline can be
+ * timed on far more polygons than any of the data files have.
+ */
+public class SyntheticMesh {
+
+	/**
+	 * Makes a sphere out of exactly the given number of polygons, in the same
+	 * indexed form a welded scene file would be in. The sphere is split into
+	 * stacks and slices, with two polygons per square, so about half of the
+	 * polygons face the camera.
+	 *
+	 * @param triangles the number of polygons
+	 * @param seed for the random colours
+	 */
+	public static MeshBuffer sphere(int triangles, long seed) {
+
+		// twice as many slices as stacks keeps the squares roughly square
+		int stacks = Math.max(1, (int) Math.round(Math.sqrt(triangles / 4.0)));
+		int slices = Math.max(3, (triangles + 2 * stacks - 1) / (2 * stacks));
+
+		float radius = 250;
+		float[] vertices = new float[(stacks + 1) * slices * 3];
+		for (int s = 0; s <= stacks; s++) {
+			double phi = Math.PI * s / stacks;
+			for (int l = 0; l < slices; l++) {
+				double theta = 2 * Math.PI * l / slices;
+				int o = (s * slices + l) * 3;
+				vertices[o] = (float) (radius * Math.sin(phi) * Math.cos(theta));
+				vertices[o + 1] = (float) (radius * Math.cos(phi));
+				vertices[o + 2] = (float) (radius * Math.sin(phi) * Math.sin(theta));
+			}
+		}
+
+		// only the first polygons are kept, so there are exactly as many as asked for
+		int[] indices = new int[triangles * 3];
+		int n = 0;
+		for (int s = 0; s < stacks && n < triangles; s++) {
+			for (int l = 0; l < slices && n < triangles; l++) {
+				int a = s * slices + l, b = s * slices + (l + 1) % slices;
+				int c = a + slices, d = b + slices;
+				n = addTriangle(indices, n, a, c, b);
+				if (n < triangles) n = addTriangle(indices, n, b, c, d);
+			}
+		}
+
+		Random random = new Random(seed);
+		int[] colours = new int[triangles];
+		for (int i = 0; i < triangles; i++)
+			colours[i] = MeshBuffer.packColour(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+
+		return new MeshBuffer(vertices, indices, colours);
+
+	}
+
+	/**
+	 * Makes a sphere with smaller spheres inside it like the layers of an onion, the
+	 * outside one first. Everything but the front of the outside sphere is hidden
+	 * behind it, which is the kind of scene occlusion culling helps with and none
+	 * of the data files are.
+	 *
+	 * @param triangles the number of polygons in each sphere
+	 * @param layers the number of spheres
+	 * @param seed for the random colours
+	 */
+	public static MeshBuffer layers(int triangles, int layers, long seed) {
+
+		MeshBuffer sphere = sphere(triangles, seed);
+		float[] sphereVertices = sphere.getVertices();
+		int[] sphereIndices = sphere.getIndices(), sphereColours = sphere.getColours();
+
+		float[] vertices = new float[sphereVertices.length * layers];
+		int[] indices = new int[sphereIndices.length * layers];
+		int[] colours = new int[sphereColours.length * layers];
+
+		// the ones inside are half the size of the outside one or less, so there's always a
+		// gap between them and it
+		for (int k = 0; k < layers; k++) {
+			float scale = k == 0 ? 1 : 0.5f - 0.25f * (k - 1) / layers;
+			for (int v = 0; v < sphereVertices.length; v++)
+				vertices[k * sphereVertices.length + v] = sphereVertices[v] * scale;
+			// the corners go the other way round, so the near side of each sphere faces the camera
+			for (int i = 0; i < sphereIndices.length; i += 3) {
+				int o = k * sphereIndices.length + i, first = k * sphere.getVertexCount();
+				indices[o] = sphereIndices[i] + first;
+				indices[o + 1] = sphereIndices[i + 2] + first;
+				indices[o + 2] = sphereIndices[i + 1] + first;
+			}
+			System.arraycopy(sphereColours, 0, colours, k * sphereColours.length, sphereColours.length);
+		}
+
+		return new MeshBuffer(vertices, indices, colours);
+
+	}
+
+	private static int addTriangle(int[] indices, int n, int a, int b, int c) {
+		indices[n * 3] = a;
+		indices[n * 3 + 1] = b;
+		indices[n * 3 + 2] = c;
+		return n + 1;
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,112 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import renderer.Transform;
+import renderer.Vector3D;
+
+/**
+ * Compares the ways of transforming a whole array of vertices: a Vector3D at a
+ * time (how rotateScene used to do it, once for each of its steps), in place a
+ * vertex at a time, and the bulk multiply.
+ *
+ * The bulk multiply of separate x, y, z arrays is run twice, once in a JVM
+ * without the vector module so it falls back to the scalar loop, and once with
+ * it so it uses the Vector API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+public class TransformBenchmark {
+
+	@Param({ "1000000" })
+	public int vertices;
+
+	private float[] src, dst;
+	private float[] xs, ys, zs, outX, outY, outZ;
+	private Transform transform;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(261);
+		src = new float[vertices * 3];
+		dst = new float[vertices * 3];
+		for (int i = 0; i < src.length; i++)
+			src[i] = (random.nextFloat() - 0.5f) * 600;
+
+		xs = new float[vertices];
+		ys = new float[vertices];
+		zs = new float[vertices];
+		for (int v = 0; v < vertices; v++) {
+			xs[v] = src[v * 3];
+			ys[v] = src[v * 3 + 1];
+			zs[v] = src[v * 3 + 2];
+		}
+		outX = new float[vertices];
+		outY = new float[vertices];
+		outZ = new float[vertices];
+
+		transform = Transform.newTranslation(300, 300, 0)
+				.compose(Transform.newYRotation(0.3f)).compose(Transform.newXRotation(0.2f));
+	}
+
+	@Benchmark
+	public float[] vector3D() {
+		for (int o = 0; o < src.length; o += 3) {
+			Vector3D v = transform.multiply(new Vector3D(src[o], src[o + 1], src[o + 2]));
+			dst[o] = v.x;
+			dst[o + 1] = v.y;
+			dst[o + 2] = v.z;
+		}
+		return dst;
+	}
+
+	@Benchmark
+	public float[] perVertex() {
+		System.arraycopy(src, 0, dst, 0, src.length);
+		for (int o = 0; o < dst.length; o += 3)
+			transform.multiply(dst, o);
+		return dst;
+	}
+
+	@Benchmark
+	public float[] bulk() {
+		transform.multiply(src, dst, vertices);
+		return dst;
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Drenderer.vector=false")
+	public float[] separateScalar() {
+		transform.multiply(xs, ys, zs, outX, outY, outZ, vertices);
+		return outZ;
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+	public float[] separateVector() {
+		if (!Transform.isVectorised()) throw new IllegalStateException("the Vector API isn't being used");
+		transform.multiply(xs, ys, zs, outX, outY, outZ, vertices);
+		return outZ;
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,249 @@
+package renderer;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renders a scene to image files from the command line, without ever opening a
+ * window, so it can run on a headless machine.
+ *
+ * The scene is loaded and scaled the same way Renderer does it, then each frame
+ * rotates the scene by some amount (like pressing the arrow keys would) and is
+ * drawn and written out. The time taken by each frame is printed as it goes.
+ *
+ * Usage: BatchRenderer scene outputDir [options]
+ * <pre>
+ * --rotate x,y[,n]   adds n frames (1 if left out), each rotating by x and y radians first
+ * --ambient r,g,b    the ambient light for the frames added after this, 0 to 255 each
+ * --format png|ppm   the format of the frames, png by default
+ * --tiled            draws the tiles of each frame in parallel
+ * --vector           fills scanlines with the Vector API, which needs java --add-modules jdk.incubator.vector
+ * --deferred         uses deferred shading, so frames that only change the ambient light aren't drawn again
+ * --smooth           gouraud shades the polygons, blending the light at each vertex across them
+ * --halfspace        draws the polygons with edge functions rather than edge lists
+ * --cull             skips polygons hidden behind ones already drawn, checked against a coarse depth pyramid
+ * </pre>
+ * With no --rotate, a single frame of the scene as it was loaded is drawn. An option
+ * that isn't one of these, or is missing its value, prints the usage and exits with
+ * a non-zero status.
+ */
+public class BatchRenderer {
+
+	/** The ambient light if none is given, the same as the GUI's sliders start at */
+	public static final Color DEFAULT_AMBIENT = new Color(128, 128, 128);
+
+	private static final String USAGE = "Usage: BatchRenderer scene outputDir [--rotate x,y[,n]]... [--ambient r,g,b] "
+			+ "[--format png|ppm] [--tiled] [--vector] [--deferred] [--smooth] [--halfspace] [--cull]";
+
+	// the options that are followed by a value, and the ones that are on their own
+	private static final List<String> VALUE_OPTIONS = Arrays.asList("--rotate", "--ambient", "--format");
+	private static final List<String> FLAG_OPTIONS = Arrays.asList("--tiled", "--vector", "--deferred", "--smooth", "--halfspace", "--cull");
+
+	/**
+	 * A single frame to draw: how far to rotate the scene first, and the ambient light
+	 */
+	public static class Frame {
+
+		public final float xRot, yRot;
+		public final Color ambientLight;
+
+		public Frame(float xRot, float yRot, Color ambientLight) {
+			this.xRot = xRot;
+			this.yRot = yRot;
+			this.ambientLight = ambientLight;
+		}
+	}
+
+	private final SceneRenderer sceneRenderer;
+
+	/**
+	 * Constructs a BatchRenderer that draws frames the size of the GUI's canvas
+	 *
+	 * @param tiled whether to draw the tiles of each frame in parallel
+	 */
+	public BatchRenderer(boolean tiled) {
+		this(tiled, SpanKernel.SCALAR);
+	}
+
+	/**
+	 * Constructs a BatchRenderer that draws frames the size of the GUI's canvas
+	 *
+	 * @param tiled whether to draw the tiles of each frame in parallel
+	 * @param spanKernel what fills in the scanlines of each polygon
+	 */
+	public BatchRenderer(boolean tiled, SpanKernel spanKernel) {
+		this.sceneRenderer = new SceneRenderer(GUI.CANVAS_WIDTH, GUI.CANVAS_HEIGHT);
+		this.sceneRenderer.setTiled(tiled);
+		this.sceneRenderer.setSpanKernel(spanKernel);
+	}
+
+	/**
+	 * Returns the SceneRenderer that draws the frames, to change how it draws them
+	 */
+	public SceneRenderer getSceneRenderer() {
+		return sceneRenderer;
+	}
+
+	/**
+	 * Draws every frame in turn, writing each one to outputDir as frame0000.format, frame0001.format, ...
+	 *
+	 * @param scene the scene, which should already be scaled. Each frame's rotation is applied to it
+	 * @param frames the frames to draw
+	 * @param outputDir the folder to write the frames to
+	 * @param format the file extension of the frames, such as png or ppm
+	 * @param log where the time for each frame is printed, or null for nothing
+	 * @return how long each frame took to transform and draw, in nanoseconds, not counting writing it out
+	 */
+	public long[] render(Scene scene, List<Frame> frames, File outputDir, String format, PrintStream log) throws IOException {
+
+		long[] times = new long[frames.size()];
+
+		for (int f = 0; f < frames.size(); f++) {
+
+			Frame frame = frames.get(f);
+			long start = System.nanoTime();
+
+			// rotates then centres the scene, as pressing a key then redrawing does in Renderer
+			if (frame.xRot != 0 || frame.yRot != 0) scene = Pipeline.rotateScene(scene, frame.xRot, frame.yRot);
+			scene = Pipeline.translateScene(scene);
+
+			sceneRenderer.render(scene, frame.ambientLight);
+			long drawn = System.nanoTime();
+
+			File file = new File(outputDir, String.format("frame%04d.%s", f, format));
+			FrameWriter.write(sceneRenderer.getFrameBuffer(), file);
+			long written = System.nanoTime();
+
+			times[f] = drawn - start;
+			if (log != null)
+				log.printf("frame %d: rendered in %.2f ms, written in %.2f ms%n", f, (drawn - start) / 1e6, (written - drawn) / 1e6);
+
+		}
+
+		return times;
+
+	}
+
+	/**
+	 * Reads the options into a list of frames, see the class comment for what they are
+	 */
+	private static List<Frame> parseFrames(String[] args, int from) {
+
+		List<Frame> frames = new ArrayList<>();
+		Color ambient = DEFAULT_AMBIENT;
+
+		for (int i = from; i < args.length; i++) {
+			if (args[i].equals("--rotate")) {
+				String[] parts = args[++i].split(",");
+				int count = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+				for (int n = 0; n < count; n++)
+					frames.add(new Frame(Float.parseFloat(parts[0]), Float.parseFloat(parts[1]), ambient));
+			} else if (args[i].equals("--ambient")) {
+				String[] parts = args[++i].split(",");
+				ambient = new Color(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+			}
+		}
+
+		// with no rotations, draws the scene once as it is
+		if (frames.isEmpty()) frames.add(new Frame(0, 0, ambient));
+
+		return frames;
+
+	}
+
+	/**
+	 * Checks every option is one the batch renderer knows, and that the ones needing a value have one,
+	 * so a typo doesn't quietly draw the frames with the defaults instead
+	 *
+	 * @param args the command line arguments
+	 * @param from the first one that is an option
+	 * @throws IllegalArgumentException saying which option was wrong
+	 */
+	public static void checkOptions(String[] args, int from) {
+		for (int i = from; i < args.length; i++) {
+			if (VALUE_OPTIONS.contains(args[i])) {
+				if (++i == args.length) throw new IllegalArgumentException(args[i - 1] + " needs a value after it");
+			} else if (!FLAG_OPTIONS.contains(args[i])) {
+				throw new IllegalArgumentException("unknown option " + args[i]);
+			}
+		}
+	}
+
+	/**
+	 * Prints what was wrong with the arguments and how to use the batch renderer, then exits
+	 */
+	private static void exitWithUsage(String problem) {
+		if (problem != null) System.out.println(problem);
+		System.out.println(USAGE);
+		System.exit(2);
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		// makes sure nothing tries to open a window
+		System.setProperty("java.awt.headless", "true");
+
+		if (args.length < 2) exitWithUsage(null);
+		try {
+			checkOptions(args, 2);
+		} catch (IllegalArgumentException e) {
+			exitWithUsage(e.getMessage());
+		}
+
+		String format = "png";
+		boolean tiled = false, deferred = false, smooth = false, halfSpace = false, cull = false;
+		SpanKernel spanKernel = SpanKernel.SCALAR;
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("--format")) format = args[++i];
+			else if (args[i].equals("--rotate") || args[i].equals("--ambient")) i++;	// read by parseFrames
+			else if (args[i].equals("--tiled")) tiled = true;
+			else if (args[i].equals("--vector")) spanKernel = SpanKernel.vector();
+			else if (args[i].equals("--deferred")) deferred = true;
+			else if (args[i].equals("--smooth")) smooth = true;
+			else if (args[i].equals("--halfspace")) halfSpace = true;
+			else if (args[i].equals("--cull")) cull = true;
+		}
+
+		List<Frame> frames;
+		try {
+			frames = parseFrames(args, 2);
+		} catch (RuntimeException e) {
+			System.out.println("Couldn't read the frames: " + e);
+			System.exit(1);
+			return;
+		}
+
+		File outputDir = new File(args[1]);
+		if (!outputDir.isDirectory() && !outputDir.mkdirs())
+			throw new IOException("couldn't make the output folder " + outputDir);
+
+		long start = System.nanoTime();
+		Scene scene = Pipeline.scaleScene(SceneLoader.load(new File(args[0]), MeshBuffer.DEFAULT_WELD_EPSILON));
+		long loaded = System.nanoTime();
+		System.out.printf("%d polygons loaded in %.1f ms%n", scene.getMesh().getTriangleCount(), (loaded - start) / 1e6);
+
+		if (spanKernel == SpanKernel.SCALAR && Arrays.asList(args).contains("--vector"))
+			System.out.println("The Vector API isn't there, run java with --add-modules jdk.incubator.vector to use it");
+
+		BatchRenderer batchRenderer = new BatchRenderer(tiled, spanKernel);
+		batchRenderer.getSceneRenderer().setDeferred(deferred);
+		batchRenderer.getSceneRenderer().setSmooth(smooth);
+		batchRenderer.getSceneRenderer().setHalfSpace(halfSpace);
+		batchRenderer.getSceneRenderer().setOcclusionCulling(cull);
+		long[] times = batchRenderer.render(scene, frames, outputDir, format, System.out);
+
+		long total = 0;
+		for (long t : times) total += t;
+		System.out.printf("%d frames rendered in %.1f ms, %.2f ms per frame, %.1f frames per second%n",
+				times.length, total / 1e6, total / 1e6 / times.length, times.length * 1e9 / total);
+
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,227 @@
+package renderer;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A compact binary version of the scene file format, which can be loaded by
+ * memory mapping the file and copying each section straight into the arrays of
+ * a MeshBuffer, with no parsing at all.
+ *
+ * Everything is little endian. The layout is:
+ *
+ * <pre>
+ * int    MAGIC, VERSION
+ * int    triangleCount, vertexCount, lightCount
+ * int    colours[triangleCount]         packed 0xRRGGBB reflectance
+ * float  vertices[vertexCount * 3]      x, y, z of each unique vertex
+ * int    indices[triangleCount * 3]     the vertex of each corner
+ * lights[lightCount]                    float x, y, z then int packed 0xRRGGBB
+ * </pre>
+ *
+ * The main method converts a text scene into this format.
+ */
+public class BinaryScene {
+
+	/** The extension binary scene files are expected to have */
+	public static final String EXTENSION = ".bin";
+
+	/** "MESH" in ascii, the first four bytes of every binary scene */
+	public static final int MAGIC = 0x4D455348;
+	public static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 5 * 4;
+	private static final int LIGHT_BYTES = 4 * 4;
+
+	// the most bytes mapped or written at once, mappings have to be under 2GB
+	private static final int CHUNK_BYTES = 1 << 26;
+
+	/**
+	 * Writes a scene's model to a file in the binary format. The scene's transform isn't written
+	 *
+	 * @param scene
+	 * @param file
+	 */
+	public static void write(Scene scene, File file) throws IOException {
+
+		MeshBuffer mesh = scene.getModel();
+		Map<Vector3D, Color> lights = scene.getLights();
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			// the whole file if it's smaller than a chunk, so a small scene doesn't get a 64MB buffer
+			long bytes = HEADER_BYTES + 4L * mesh.getColours().length + 4L * mesh.getVertices().length
+					+ 4L * mesh.getIndices().length + (long) LIGHT_BYTES * lights.size();
+			ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(CHUNK_BYTES, bytes)).order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC).putInt(VERSION);
+			buffer.putInt(mesh.getTriangleCount()).putInt(mesh.getVertexCount()).putInt(lights.size());
+
+			// each section is written a buffer full at a time
+			for (int c : mesh.getColours()) {
+				if (buffer.remaining() < 4) flush(channel, buffer);
+				buffer.putInt(c);
+			}
+			for (float v : mesh.getVertices()) {
+				if (buffer.remaining() < 4) flush(channel, buffer);
+				buffer.putFloat(v);
+			}
+			for (int i : mesh.getIndices()) {
+				if (buffer.remaining() < 4) flush(channel, buffer);
+				buffer.putInt(i);
+			}
+			for (Map.Entry<Vector3D, Color> light : lights.entrySet()) {
+				if (buffer.remaining() < LIGHT_BYTES) flush(channel, buffer);
+				buffer.putFloat(light.getKey().x).putFloat(light.getKey().y).putFloat(light.getKey().z);
+				buffer.putInt(light.getValue().getRGB() & 0xFFFFFF);
+			}
+
+			flush(channel, buffer);
+
+		}
+
+	}
+
+	/**
+	 * Writes out everything in the buffer, and empties it
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Reads a scene in the binary format by memory mapping the file
+	 *
+	 * @param file
+	 */
+	public static Scene read(File file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			long size = channel.size();
+			if (size < HEADER_BYTES)
+				throw new IOException(file + " is too short to be a binary scene");
+
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (header.getInt() != MAGIC)
+				throw new IOException(file + " is not a binary scene");
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException(file + " is binary scene version " + version + ", expected " + VERSION);
+
+			int triangleCount = header.getInt(), vertexCount = header.getInt(), lightCount = header.getInt();
+			if (triangleCount < 0 || vertexCount < 0 || lightCount < 0)
+				throw new IOException(file + " has a corrupt header");
+
+			// checks the file is as long as the header says before trying to map any of it
+			long expected = HEADER_BYTES + 4L * triangleCount + 12L * vertexCount + 12L * triangleCount
+					+ (long) LIGHT_BYTES * lightCount;
+			if (size != expected)
+				throw new IOException(file + " should be " + expected + " bytes but is " + size);
+
+			int[] colours = new int[triangleCount];
+			float[] vertices = new float[vertexCount * 3];
+			int[] indices = new int[triangleCount * 3];
+
+			long position = HEADER_BYTES;
+			position = readInts(channel, position, colours);
+			position = readFloats(channel, position, vertices);
+			position = readInts(channel, position, indices);
+
+			// checks the indices before the pipeline goes reading vertices that don't exist
+			for (int i : indices)
+				if (i < 0 || i >= vertexCount)
+					throw new IOException(file + " has a vertex index of " + i + " but only " + vertexCount + " vertices");
+
+			Map<Vector3D, Color> lights = new LinkedHashMap<>();
+			if (lightCount > 0) {
+				MappedByteBuffer lightData = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) LIGHT_BYTES * lightCount);
+				lightData.order(ByteOrder.LITTLE_ENDIAN);
+				for (int i = 0; i < lightCount; i++) {
+					Vector3D direction = new Vector3D(lightData.getFloat(), lightData.getFloat(), lightData.getFloat());
+					lights.put(direction, new Color(lightData.getInt()));
+				}
+			}
+
+			return Scene.fromMesh(new MeshBuffer(vertices, indices, colours), lights);
+
+		}
+
+	}
+
+	/**
+	 * Maps the file a chunk at a time, bulk copying the ints into the array
+	 *
+	 * @return the position just after the ints
+	 */
+	private static long readInts(FileChannel channel, long position, int[] dst) throws IOException {
+		int done = 0;
+		while (done < dst.length) {
+			int count = Math.min(dst.length - done, CHUNK_BYTES / 4);
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position, count * 4L);
+			map.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(dst, done, count);
+			position += count * 4L;
+			done += count;
+		}
+		return position;
+	}
+
+	/**
+	 * Maps the file a chunk at a time, bulk copying the floats into the array
+	 *
+	 * @return the position just after the floats
+	 */
+	private static long readFloats(FileChannel channel, long position, float[] dst) throws IOException {
+		int done = 0;
+		while (done < dst.length) {
+			int count = Math.min(dst.length - done, CHUNK_BYTES / 4);
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position, count * 4L);
+			map.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(dst, done, count);
+			position += count * 4L;
+			done += count;
+		}
+		return position;
+	}
+
+	/**
+	 * Converts a text scene file into a binary one.
+	 * Usage: BinaryScene input.txt output.bin [weldEpsilon]
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 2) {
+			System.out.println("Usage: BinaryScene input.txt output" + EXTENSION + " [weldEpsilon]");
+			return;
+		}
+
+		float weldEpsilon = args.length > 2 ? Float.parseFloat(args[2]) : MeshBuffer.DEFAULT_WELD_EPSILON;
+
+		long start = System.nanoTime();
+		Scene scene = SceneLoader.loadText(new File(args[0]), weldEpsilon);
+		long loaded = System.nanoTime();
+		write(scene, new File(args[1]));
+		long written = System.nanoTime();
+
+		System.out.printf("%d triangles, %d vertices: parsed in %.1f ms, written in %.1f ms%n",
+				scene.getMesh().getTriangleCount(), scene.getMesh().getVertexCount(),
+				(loaded - start) / 1e6, (written - loaded) / 1e6);
+
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,73 @@
+package renderer;
+
+import java.util.Arrays;
+
+/**
+ * A reusable depth buffer for the renderer. The depths are stored in a single
+ * row-major float array (indexed by y*width + x) so that walking along a
+ * scanline reads memory in order, and the whole buffer can be reset in one go
+ * at the start of each frame instead of being reallocated.
+ */
+public class DepthBuffer {
+
+	private final int width, height;	// the size of the depth buffer in pixels
+	private final float[] depths;		// the z-value of each pixel, indexed by y*width + x
+
+	/**
+	 * Constructor for a DepthBuffer of the given size, which starts off cleared
+	 *
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 */
+	public DepthBuffer(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.depths = new float[width * height];
+		clear();
+	}
+
+	/**
+	 * Returns the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the depth array, indexed by y*width + x
+	 */
+	public float[] getDepths() {
+		return depths;
+	}
+
+	/**
+	 * Returns the z-value at the given pixel
+	 */
+	public float get(int x, int y) {
+		return depths[y * width + x];
+	}
+
+	/**
+	 * Sets the z-value at the given pixel
+	 */
+	public void set(int x, int y, float z) {
+		depths[y * width + x] = z;
+	}
+
+	/**
+	 * Resets every pixel to positive infinity (the furthest back that a polygon could go)
+	 */
+	public void clear() {
+		Arrays.fill(depths, Float.POSITIVE_INFINITY);
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,312 @@
+package renderer;
+
+/**
+ * Draws a triangle with edge functions (half-spaces), an alternative to
+ * building an edge list and filling it a scanline at a time.
+ *
+ * Each edge of the triangle splits the screen in half, and a pixel is drawn if
+ * its centre is on the inside of all three. The edge functions are worked out in
+ * fixed point, with SUBPIXEL_BITS bits below the pixel, so they're exact. A pixel
+ * centre lying right on an edge shared by two triangles is only given to one of
+ * them by the top-left rule: it belongs to the triangle whose top or left edge it
+ * is on. So triangles that share an edge never leave a crack or draw a pixel
+ * twice, and removeHoles isn't needed afterwards.
+ *
+ * The triangle's bounding box is gone through in BLOCK_SIZE x BLOCK_SIZE blocks.
+ * Since the edge functions are linear, checking the corners of a block tells us
+ * if the whole block is outside the triangle, which is skipped, or completely
+ * inside it, which is filled without testing each pixel. Only the blocks along
+ * the edges are tested a pixel at a time, in from each end of the row. The
+ * pixels of each row found this way are then filled in one go by a SpanKernel,
+ * so the vector kernel works the same as it does for scanlines.
+ */
+public class EdgeFunctionRasterizer {
+
+	/** The number of bits of the fixed point coordinates below a whole pixel */
+	public static final int SUBPIXEL_BITS = 4;
+	/** The width and height of the blocks the bounding box is gone through in */
+	public static final int BLOCK_SIZE = 8;
+
+	private static final int ONE = 1 << SUBPIXEL_BITS;		// a whole pixel in fixed point
+	private static final int HALF = ONE / 2;				// the offset to the centre of a pixel
+
+	private EdgeFunctionRasterizer() {}
+
+	/**
+	 * Draws a triangle of the mesh, clipped to a rectangle of the screen. Each pixel it covers
+	 * that is closer than the depth already there is given the value, or for smooth shading
+	 * the colour blended from its corners
+	 *
+	 * @param pixels the values of each pixel so far, indexed by y*width + x
+	 * @param depths the depths of each pixel so far, in the same layout
+	 * @param width the width of the screen
+	 * @param mesh
+	 * @param tri the index of the triangle in the mesh
+	 * @param vertexLights the light reaching each vertex for smooth shading, or null to fill it with value
+	 * @param value what is written into each pixel the triangle covers, when it isn't smooth shaded
+	 * @param minX the leftmost x to draw (inclusive)
+	 * @param minY the top y to draw (inclusive)
+	 * @param maxX the rightmost x to draw (exclusive)
+	 * @param maxY the bottom y to draw (exclusive)
+	 * @param kernel fills in the pixels of each row
+	 */
+	public static void draw(int[] pixels, float[] depths, int width, MeshBuffer mesh, int tri, float[] vertexLights, int value,
+							int minX, int minY, int maxX, int maxY, SpanKernel kernel) {
+
+		float[] p = mesh.getVertices();
+		int a = mesh.offset(tri, 0), b = mesh.offset(tri, 1), c = mesh.offset(tri, 2);
+
+		// the corners in fixed point
+		long ax = fix(p[a]), ay = fix(p[a + 1]), bx = fix(p[b]), by = fix(p[b + 1]), cx = fix(p[c]), cy = fix(p[c + 1]);
+
+		// twice the area, which is negative if the corners go the other way round
+		long area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+		if (area == 0) return;
+
+		// swaps b and c if needed, so the inside of every edge is where its edge function is positive
+		if (area < 0) {
+			long t = bx; bx = cx; cx = t;
+			t = by; by = cy; cy = t;
+			int o = b; b = c; c = o;
+			area = -area;
+		}
+
+		// the pixels whose centres can be inside the triangle, clipped to the rectangle
+		int x0 = Math.max(minX, (int) Math.floorDiv(Math.min(ax, Math.min(bx, cx)) - HALF + ONE - 1, ONE));
+		int y0 = Math.max(minY, (int) Math.floorDiv(Math.min(ay, Math.min(by, cy)) - HALF + ONE - 1, ONE));
+		int x1 = Math.min(maxX - 1, (int) Math.floorDiv(Math.max(ax, Math.max(bx, cx)) - HALF, ONE));
+		int y1 = Math.min(maxY - 1, (int) Math.floorDiv(Math.max(ay, Math.max(by, cy)) - HALF, ONE));
+		if (x0 > x1 || y0 > y1) return;
+
+		// each edge function at the centre of pixel (0, 0), and how much it goes up for each pixel
+		// across and down. Edges that aren't top or left edges are moved in by one, so a pixel
+		// centre exactly on them is left for the triangle on the other side
+		long e0 = edge(ax, ay, bx, by), e0x = -(by - ay) * ONE, e0y = (bx - ax) * ONE;
+		long e1 = edge(bx, by, cx, cy), e1x = -(cy - by) * ONE, e1y = (cx - bx) * ONE;
+		long e2 = edge(cx, cy, ax, ay), e2x = -(ay - cy) * ONE, e2y = (ax - cx) * ONE;
+
+		// the depth across the triangle is a plane, so it goes up by the same amount each pixel
+		float fax = ax / (float) ONE, fay = ay / (float) ONE;
+		float abx = (bx - ax) / (float) ONE, aby = (by - ay) / (float) ONE;
+		float acx = (cx - ax) / (float) ONE, acy = (cy - ay) / (float) ONE;
+		float fArea = area / (float) (ONE * ONE);
+
+		float za = p[a + 2], zb = p[b + 2], zc = p[c + 2];
+		float dzdx = slopeX(za, zb, zc, aby, acy, fArea), dzdy = slopeY(za, zb, zc, abx, acx, fArea);
+		// the depth at the centre of pixel (0, 0)
+		float z00 = za - dzdx * (fax - 0.5f) - dzdy * (fay - 0.5f);
+
+		// and so do the colours for smooth shading, from the colour at each corner
+		boolean smooth = vertexLights != null;
+		float r00 = 0, g00 = 0, b00 = 0, drdx = 0, drdy = 0, dgdx = 0, dgdy = 0, dbdx = 0, dbdy = 0;
+		if (smooth) {
+			int reflectance = mesh.getColours()[tri];
+			for (int channel = 0, shift = 16; channel < 3; channel++, shift -= 8) {
+				float ca = cornerColour(reflectance, shift, vertexLights[a + channel]);
+				float cbv = cornerColour(reflectance, shift, vertexLights[b + channel]);
+				float ccv = cornerColour(reflectance, shift, vertexLights[c + channel]);
+				float dx = slopeX(ca, cbv, ccv, aby, acy, fArea), dy = slopeY(ca, cbv, ccv, abx, acx, fArea);
+				float at00 = ca - dx * (fax - 0.5f) - dy * (fay - 0.5f);
+				if (channel == 0) { r00 = at00; drdx = dx; drdy = dy; }
+				else if (channel == 1) { g00 = at00; dgdx = dx; dgdy = dy; }
+				else { b00 = at00; dbdx = dx; dbdy = dy; }
+			}
+		}
+
+		for (int blockY = y0 - Math.floorMod(y0, BLOCK_SIZE); blockY <= y1; blockY += BLOCK_SIZE) {
+
+			int sy = Math.max(blockY, y0), ey = Math.min(blockY + BLOCK_SIZE - 1, y1);
+
+			// finds the blocks along this row of blocks that touch the triangle, and the ones
+			// completely inside it. The triangle is convex, so both are a run of blocks next to each other
+			int touchFrom = -1, touchTo = -1, fullFrom = -1, fullTo = -1;
+			for (int blockX = x0 - Math.floorMod(x0, BLOCK_SIZE); blockX <= x1; blockX += BLOCK_SIZE) {
+
+				// the part of the block inside the bounding box
+				int sx = Math.max(blockX, x0), ex = Math.min(blockX + BLOCK_SIZE - 1, x1);
+
+				// checks the corners of the block against each edge. If they're all outside any one edge
+				// the whole block is, and if they're all inside every edge the whole block is
+				int c0 = corners(e0, e0x, e0y, sx, sy, ex, ey), c1 = corners(e1, e1x, e1y, sx, sy, ex, ey),
+					c2 = corners(e2, e2x, e2y, sx, sy, ex, ey);
+
+				if (c0 == 0 || c1 == 0 || c2 == 0) {
+					if (touchFrom >= 0) break;
+					continue;
+				}
+
+				if (touchFrom < 0) touchFrom = sx;
+				touchTo = ex;
+
+				if (c0 == 4 && c1 == 4 && c2 == 4) {
+					if (fullFrom < 0) fullFrom = sx;
+					fullTo = ex;
+				}
+
+			}
+
+			if (touchFrom < 0) continue;
+
+			for (int y = sy; y <= ey; y++) {
+
+				// only the pixels in blocks along the edges are tested. The first pixel inside is
+				// looked for from the left, up to the blocks that are completely inside
+				int startX = -1;
+				int limit = fullFrom < 0 ? touchTo : fullFrom - 1;
+				long w0 = e0 + e0x * touchFrom + e0y * y, w1 = e1 + e1x * touchFrom + e1y * y, w2 = e2 + e2x * touchFrom + e2y * y;
+				for (int x = touchFrom; x <= limit; x++, w0 += e0x, w1 += e1x, w2 += e2x) {
+					if (w0 >= 0 && w1 >= 0 && w2 >= 0) {
+						startX = x;
+						break;
+					}
+				}
+				if (startX < 0) {
+					if (fullFrom < 0) continue;
+					startX = fullFrom;
+				}
+
+				// and the last one from the right, down to the blocks completely inside or the first pixel
+				int endX = fullFrom < 0 ? startX + 1 : fullTo + 1;
+				limit = fullFrom < 0 ? startX : fullTo + 1;
+				w0 = e0 + e0x * touchTo + e0y * y;
+				w1 = e1 + e1x * touchTo + e1y * y;
+				w2 = e2 + e2x * touchTo + e2y * y;
+				for (int x = touchTo; x >= limit; x--, w0 -= e0x, w1 -= e1x, w2 -= e2x) {
+					if (w0 >= 0 && w1 >= 0 && w2 >= 0) {
+						endX = x + 1;
+						break;
+					}
+				}
+
+				// the depth and colours are worked out from the start of the row rather than of the run,
+				// so a pixel gets exactly the same depth however the row is clipped into tiles
+				if (smooth) {
+					kernel.fillSmooth(pixels, depths, y * width, startX, endX, 0, z00 + dzdy * y, dzdx,
+							r00 + drdy * y, g00 + dgdy * y, b00 + dbdy * y, drdx, dgdx, dbdx);
+				} else {
+					kernel.fill(pixels, depths, y * width, startX, endX, 0, z00 + dzdy * y, dzdx, value);
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Returns a depth no further away than any pixel draw could give the triangle, for
+	 * throwing it away when everything it covers is already closer.
+	 *
+	 * The depth is set up exactly the same way as in draw. Across the triangle it's a plane,
+	 * so it's closest at one of the corners, but each pixel's depth is added up in floats from
+	 * pixel (0, 0), which can round it a little closer. The rounding is at most a few units in
+	 * the last place of the biggest number in the sum, so that much is taken off as well
+	 *
+	 * @param mesh
+	 * @param tri the index of the triangle in the mesh
+	 * @param width the width of the screen
+	 * @param height the height of the screen
+	 * @return the closest depth, or infinity if the triangle has no area
+	 */
+	public static float getNearestDepth(MeshBuffer mesh, int tri, int width, int height) {
+
+		float[] p = mesh.getVertices();
+		int a = mesh.offset(tri, 0), b = mesh.offset(tri, 1), c = mesh.offset(tri, 2);
+
+		long ax = fix(p[a]), ay = fix(p[a + 1]), bx = fix(p[b]), by = fix(p[b + 1]), cx = fix(p[c]), cy = fix(p[c + 1]);
+		long area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+		if (area == 0) return Float.POSITIVE_INFINITY;
+
+		if (area < 0) {
+			long t = bx; bx = cx; cx = t;
+			t = by; by = cy; cy = t;
+			int o = b; b = c; c = o;
+			area = -area;
+		}
+
+		float fax = ax / (float) ONE, fay = ay / (float) ONE;
+		float abx = (bx - ax) / (float) ONE, aby = (by - ay) / (float) ONE;
+		float acx = (cx - ax) / (float) ONE, acy = (cy - ay) / (float) ONE;
+		float fArea = area / (float) (ONE * ONE);
+
+		float za = p[a + 2], zb = p[b + 2], zc = p[c + 2];
+		float dzdx = slopeX(za, zb, zc, aby, acy, fArea), dzdy = slopeY(za, zb, zc, abx, acx, fArea);
+		float z00 = za - dzdx * (fax - 0.5f) - dzdy * (fay - 0.5f);
+
+		// the plane at each corner, where pixel x's centre is at x + 0.5
+		double nearest = Math.min(plane(z00, dzdx, dzdy, ax, ay), Math.min(plane(z00, dzdx, dzdy, bx, by), plane(z00, dzdx, dzdy, cx, cy)));
+
+		// two multiplies and two adds, each rounded by up to half a unit in the last place of
+		// something no bigger than this
+		double biggest = Math.abs(z00) + Math.abs(dzdx) * width + Math.abs(dzdy) * height;
+		return (float) (nearest - biggest * 0x1p-21);
+
+	}
+
+	/**
+	 * Returns the depth of the plane at a point in fixed point, without rounding it to a float
+	 */
+	private static double plane(float z00, float dzdx, float dzdy, long x, long y) {
+		return z00 + (double) dzdx * ((x - HALF) / (double) ONE) + (double) dzdy * ((y - HALF) / (double) ONE);
+	}
+
+	/**
+	 * Converts a screen coordinate to fixed point
+	 */
+	private static long fix(float v) {
+		return Math.round(v * ONE);
+	}
+
+	/**
+	 * Returns the edge function of the edge from a to b at the centre of pixel (0, 0), which
+	 * is positive on the inside. The top-left rule is done here: the function is moved in
+	 * by one unless the edge is a top edge (flat, going right) or a left edge (going up)
+	 */
+	private static long edge(long ax, long ay, long bx, long by) {
+		long e = (bx - ax) * (HALF - ay) - (by - ay) * (HALF - ax);
+		boolean topLeft = (by == ay && bx > ax) || by < ay;
+		return topLeft ? e : e - 1;
+	}
+
+	/**
+	 * Returns how many of the corners of a block are inside an edge
+	 *
+	 * @param e the edge function at the centre of pixel (0, 0)
+	 * @param ex how much it goes up for each pixel across
+	 * @param ey how much it goes up for each pixel down
+	 */
+	private static int corners(long e, long ex, long ey, int sx, int sy, int maxX, int maxY) {
+		long topLeft = e + ex * sx + ey * sy, across = ex * (maxX - sx), down = ey * (maxY - sy);
+		int inside = 0;
+		if (topLeft >= 0) inside++;
+		if (topLeft + across >= 0) inside++;
+		if (topLeft + down >= 0) inside++;
+		if (topLeft + across + down >= 0) inside++;
+		return inside;
+	}
+
+	/**
+	 * Returns how much a value given at the corners goes up for each pixel across the triangle
+	 */
+	private static float slopeX(float va, float vb, float vc, float aby, float acy, float area) {
+		return ((vb - va) * acy - (vc - va) * aby) / area;
+	}
+
+	/**
+	 * Returns how much a value given at the corners goes up for each pixel down the triangle
+	 */
+	private static float slopeY(float va, float vb, float vc, float abx, float acx, float area) {
+		return ((vc - va) * abx - (vb - va) * acx) / area;
+	}
+
+	/**
+	 * Returns one channel of the colour at a corner for smooth shading, the same as the
+	 * corners of a smooth edge list
+	 */
+	private static float cornerColour(int reflectance, int shift, float light) {
+		return Math.min(255, ((reflectance >> shift) & 0xFF) / 255.0f * light);
+	}
+
+}
+
+// code for comp261 assignments
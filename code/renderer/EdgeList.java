@@ -10,9 +10,38 @@ package renderer;
  */
 public class EdgeList {
 
+	/** The attribute every edge list has, the depth of each side */
+	public static final int Z = 0;
+	/** The colour attributes a smooth edge list has as well, from 0 to 255 */
+	public static final int RED = 1, GREEN = 2, BLUE = 3;
+
+	/** The number of attributes of a flat shaded polygon, just z */
+	public static final int FLAT = 1;
+	/** The number of attributes of a smooth shaded polygon, z and the colour */
+	public static final int SMOOTH = 4;
+
 	private int startY, endY;	 // the ints for the start and end points of the EdgeList
-	private float[][] edgeList;	 // the EdgeList saved as a float array
-	private int linearDist;		 // the size of the float array above
+	private int linearDist;		 // the number of rows in use
+	private int attributes;		 // the number of values stored down each side as well as x
+	private int stride;			 // the floats taken up by a row, an x and the attributes on each side
+
+	// every row one after the other, each being xLeft then the left attributes, then xRight
+	// then the right attributes. This only ever grows, so reset can reuse it for the next polygon
+	private float[] edgeList = new float[0];
+	// where the row startY starts in edgeList, and whether edgeList is shared with other edge lists,
+	// in which case it's never grown here and each edge list is given its own part of it
+	private int offset;
+	private boolean shared;
+
+	// the value of each attribute at each of the polygon's corners, for blending down the sides
+	private float[] corners = new float[0];
+
+	/**
+	 * Constructs an empty EdgeList, which reset sets up for a polygon
+	 */
+	public EdgeList() {
+		reset(0, -1, FLAT);
+	}
 
 	/**
 	 * Constructor for the EdgeList of a Polygon
@@ -22,14 +51,82 @@ public class EdgeList {
 	 */
 	public EdgeList(int startY, int endY) {
 		// TODO fill this in.
+		reset(startY, endY, FLAT);
+	}
+
+	/**
+	 * Constructor for the EdgeList of a Polygon, with any number of attributes
+	 * blended down each side as well as x
+	 *
+	 * @param startY start position
+	 * @param endY end position
+	 * @param attributes the number of attributes, FLAT for just z or SMOOTH for z and the colour
+	 */
+	public EdgeList(int startY, int endY, int attributes) {
+		reset(startY, endY, attributes);
+	}
 
+	/**
+	 * Sets the EdgeList up for another polygon, which doesn't allocate anything
+	 * unless it needs more room than any polygon it has held before
+	 *
+	 * @param startY start position
+	 * @param endY end position
+	 * @param attributes the number of attributes down each side
+	 */
+	public void reset(int startY, int endY, int attributes) {
 		this.startY = startY;
 		this.endY = endY;
-		linearDist = endY-startY+1; // Got an outOfBoundsException, added in this +1
+		this.attributes = attributes;
+		this.stride = getStride(attributes);
+		linearDist = Math.max(0, endY-startY+1); // Got an outOfBoundsException, added in this +1
 
-		// 0 is xLeft, 1 is zLeft, 2 is xRight, 3 is zRight
-		edgeList = new float[4][linearDist];
+		if (shared) {
+			if (offset + linearDist * stride > edgeList.length)
+				throw new IllegalStateException("EdgeList: not enough room for " + linearDist + " rows at " + offset);
+		} else if (edgeList.length < linearDist * stride) {
+			edgeList = new float[linearDist * stride];
+		}
+		if (corners.length < 3 * attributes) corners = new float[3 * attributes];
+	}
 
+	/**
+	 * Makes the EdgeList keep its rows in part of an array shared with other edge lists, starting
+	 * at offset, rather than in its own. Nothing is copied, so this can be used both to fill in
+	 * the rows (reset then doesn't allocate, the part must already be big enough) and to read
+	 * back rows another EdgeList filled in
+	 *
+	 * @param rows the shared array
+	 * @param offset where the first row starts in it
+	 */
+	public void share(float[] rows, int offset) {
+		this.edgeList = rows;
+		this.offset = offset;
+		this.shared = true;
+	}
+
+	/**
+	 * Returns the number of floats a row takes up, for working out how much room
+	 * an edge list needs in a shared array
+	 *
+	 * @param attributes the number of attributes, FLAT or SMOOTH
+	 */
+	public static int getStride(int attributes) {
+		return 2 * (attributes + 1);
+	}
+
+	/**
+	 * Returns the number of attributes down each side
+	 */
+	public int getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Returns whether the edges carry a colour, for smooth shading
+	 */
+	public boolean isSmooth() {
+		return attributes > BLUE;
 	}
 
 	/**
@@ -53,7 +150,7 @@ public class EdgeList {
 	 */
 	public float getLeftX(int y) {
 		// TODO fill this in.
-		return edgeList[0][y-startY];
+		return edgeList[offset + (y-startY) * stride];
 	}
 
 	/**
@@ -61,7 +158,7 @@ public class EdgeList {
 	 */
 	public float getRightX(int y) {
 		// TODO fill this in.
-		return edgeList[2][y-startY];
+		return edgeList[offset + (y-startY) * stride + attributes + 1];
 	}
 
 	/**
@@ -69,7 +166,7 @@ public class EdgeList {
 	 */
 	public float getLeftZ(int y) {
 		// TODO fill this in.
-		return edgeList[1][y-startY];
+		return getLeft(y, Z);
 	}
 
 	/**
@@ -77,7 +174,93 @@ public class EdgeList {
 	 */
 	public float getRightZ(int y) {
 		// TODO fill this in.
-		return edgeList[3][y-startY];
+		return getRight(y, Z);
+	}
+
+	/**
+	 * Returns an attribute on the left side
+	 *
+	 * @param y
+	 * @param attribute the attribute, such as Z or RED
+	 */
+	public float getLeft(int y, int attribute) {
+		return edgeList[offset + (y-startY) * stride + 1 + attribute];
+	}
+
+	/**
+	 * Returns an attribute on the right side
+	 *
+	 * @param y
+	 * @param attribute the attribute, such as Z or RED
+	 */
+	public float getRight(int y, int attribute) {
+		return edgeList[offset + (y-startY) * stride + attributes + 2 + attribute];
+	}
+
+	/**
+	 * Returns the left red (channel 0), green (1) or blue (2), from 0 to 255.
+	 * Only a smooth edge list has these
+	 */
+	public float getLeftColour(int y, int channel) {
+		return getLeft(y, RED + channel);
+	}
+
+	/**
+	 * Returns the right red (channel 0), green (1) or blue (2), from 0 to 255.
+	 * Only a smooth edge list has these
+	 */
+	public float getRightColour(int y, int channel) {
+		return getRight(y, RED + channel);
+	}
+
+	/**
+	 * Sets an attribute on the left side
+	 *
+	 * @param y
+	 * 		The index in the float array
+	 * @param attribute the attribute, such as Z or RED
+	 * @param value
+	 */
+	public void setLeft(int y, int attribute, float value) {
+		if (y-startY < 0 || y-startY >= linearDist) return;
+
+		edgeList[offset + (y-startY) * stride + 1 + attribute] = value;
+	}
+
+	/**
+	 * Sets an attribute on the right side
+	 *
+	 * @param y
+	 * 		The index in the float array
+	 * @param attribute the attribute, such as Z or RED
+	 * @param value
+	 */
+	public void setRight(int y, int attribute, float value) {
+		if (y-startY < 0 || y-startY >= linearDist) return;
+
+		edgeList[offset + (y-startY) * stride + attributes + 2 + attribute] = value;
+	}
+
+	/**
+	 * Returns the value of an attribute at one of the polygon's corners
+	 *
+	 * @param corner 0, 1 or 2
+	 * @param attribute the attribute, such as Z or RED
+	 */
+	public float getCorner(int corner, int attribute) {
+		return corners[corner * attributes + attribute];
+	}
+
+	/**
+	 * Sets the value of an attribute at one of the polygon's corners, which is blended
+	 * down the sides when the edges are added
+	 *
+	 * @param corner 0, 1 or 2
+	 * @param attribute the attribute, such as Z or RED
+	 * @param value
+	 */
+	public void setCorner(int corner, int attribute, float value) {
+		corners[corner * attributes + attribute] = value;
 	}
 
 	/**
@@ -95,8 +278,9 @@ public class EdgeList {
 		// just in case the y position is out of bounds
 		if (y-startY < 0 || y-startY >= linearDist) return;
 
-		edgeList[0][y-startY] = xL;
-		edgeList[1][y-startY] = zL;
+		int row = offset + (y-startY) * stride;
+		edgeList[row] = xL;
+		edgeList[row + 1] = zL;
 	}
 
 	/**
@@ -114,8 +298,9 @@ public class EdgeList {
 		// just in case the y position is out of bounds
 		if (y-startY < 0 || y-startY >= linearDist) return;
 
-		edgeList[2][y-startY] = xR;
-		edgeList[3][y-startY] = zR;
+		int row = offset + (y-startY) * stride + attributes + 1;
+		edgeList[row] = xR;
+		edgeList[row + 1] = zR;
 	}
 
 }
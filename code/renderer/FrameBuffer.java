@@ -0,0 +1,105 @@
+package renderer;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * A reusable framebuffer for the renderer. The pixels are stored as packed RGB
+ * ints in a single row-major int array, which is the same array that backs the
+ * BufferedImage returned by getImage(). This means writing a pixel here writes
+ * it straight into the image, so there is no need to copy a Color[][] across
+ * with setRGB at the end of every frame.
+ */
+public class FrameBuffer {
+
+	private final int width, height;	// the size of the framebuffer in pixels
+	private final BufferedImage image;	// the image the pixels array is taken from
+	private final int[] pixels;			// the packed rgb values, indexed by y*width + x
+	private final int[] background;		// the grid pattern the framebuffer is cleared to
+
+	/**
+	 * Constructor for a FrameBuffer of the given size
+	 *
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 */
+	public FrameBuffer(int width, int height) {
+
+		this.width = width;
+		this.height = height;
+
+		// TYPE_INT_RGB images are backed by a DataBufferInt, so the int array can be grabbed directly
+		this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		// the background only ever has to be worked out once, clear() just copies it over
+		this.background = new int[width * height];
+		int white = Color.WHITE.getRGB() & 0xFFFFFF, grey = Color.DARK_GRAY.getRGB() & 0xFFFFFF;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+
+				// creates a grid pattern from the background
+				// if a polygon doesn't cover that pixel, it will remain this colour
+				if (x % 120 == 0 || y % 120 == 0) background[y * width + x] = white;
+				else background[y * width + x] = grey;
+
+			}
+		}
+
+	}
+
+	/**
+	 * Returns the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the packed pixel array, indexed by y*width + x.
+	 * This is the same array the image is drawn from, so writes show up in getImage()
+	 */
+	public int[] getPixels() {
+		return pixels;
+	}
+
+	/**
+	 * Returns the packed rgb value at the given pixel
+	 */
+	public int getRGB(int x, int y) {
+		return pixels[y * width + x];
+	}
+
+	/**
+	 * Sets the packed rgb value at the given pixel
+	 */
+	public void setRGB(int x, int y, int rgb) {
+		pixels[y * width + x] = rgb;
+	}
+
+	/**
+	 * Resets every pixel back to the background grid
+	 */
+	public void clear() {
+		System.arraycopy(background, 0, pixels, 0, pixels.length);
+	}
+
+	/**
+	 * Returns the image backed by this framebuffer. The same image is returned every
+	 * time, so it will change when the framebuffer is next drawn into.
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+
+}
+
+// code for comp261 assignments
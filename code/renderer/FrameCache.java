@@ -0,0 +1,69 @@
+package renderer;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+/**
+ * Remembers what the last frame was drawn from, so that a repaint which doesn't
+ * change anything in the picture can just reuse the last image.
+ *
+ * Swing repaints the canvas for lots of reasons that have nothing to do with
+ * the scene, like the window being uncovered or getting focus. A frame only
+ * needs to be drawn again when the scene itself, the model, the transform
+ * (where the "camera" is), the lights or the ambient light have changed since
+ * the last one. The scene keeps a count of the changes to each of these, so
+ * checking them is just comparing a few numbers.
+ */
+public class FrameCache {
+
+	private Scene scene;				// the scene the image was drawn from, or null if there isn't an image
+	private int modelVersion, transformVersion, lightVersion;
+	private Color ambientLight;
+	private BufferedImage image;
+
+	/**
+	 * Returns the last image if it was drawn from the scene as it is now and the same
+	 * ambient light, or null if it needs to be drawn again
+	 *
+	 * @param scene the scene about to be drawn
+	 * @param ambientLight the ambient light it's about to be drawn with
+	 */
+	public BufferedImage get(Scene scene, Color ambientLight) {
+
+		if (scene == null || scene != this.scene) return null;
+
+		if (scene.getModelVersion() != modelVersion || scene.getTransformVersion() != transformVersion
+				|| scene.getLightVersion() != lightVersion || !ambientLight.equals(this.ambientLight))
+			return null;
+
+		return image;
+
+	}
+
+	/**
+	 * Remembers the image that was just drawn, and what it was drawn from
+	 *
+	 * @param scene the scene that was drawn
+	 * @param ambientLight the ambient light it was drawn with
+	 * @param image the image
+	 */
+	public void put(Scene scene, Color ambientLight, BufferedImage image) {
+		this.scene = scene;
+		this.modelVersion = scene.getModelVersion();
+		this.transformVersion = scene.getTransformVersion();
+		this.lightVersion = scene.getLightVersion();
+		this.ambientLight = ambientLight;
+		this.image = image;
+	}
+
+	/**
+	 * Forgets the last image, so the next frame is drawn whatever has changed
+	 */
+	public void clear() {
+		this.scene = null;
+		this.image = null;
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,70 @@
+package renderer;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Writes a rendered frame out to an image file. The format is picked from the
+ * file extension: ".ppm" is written as a binary PPM straight from the
+ * framebuffer's pixels, which is very quick, and anything else ImageIO can
+ * write (such as ".png") is written with ImageIO.
+ */
+public class FrameWriter {
+
+	/**
+	 * Writes the frame to a file, in the format given by the file extension
+	 *
+	 * @param frameBuffer the frame
+	 * @param file where to write it
+	 */
+	public static void write(FrameBuffer frameBuffer, File file) throws IOException {
+
+		String name = file.getName();
+		String format = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+
+		if (format.equals("ppm")) {
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+				writePPM(frameBuffer, out);
+			}
+		} else if (!ImageIO.write(frameBuffer.getImage(), format, file)) {
+			throw new IOException("no image writer for the format " + format + " of " + file);
+		}
+
+	}
+
+	/**
+	 * Writes the frame as a binary (P6) PPM, a short text header then 3 bytes of r, g, b per pixel
+	 *
+	 * @param frameBuffer the frame
+	 * @param out where to write it, which isn't closed
+	 */
+	public static void writePPM(FrameBuffer frameBuffer, OutputStream out) throws IOException {
+
+		int width = frameBuffer.getWidth(), height = frameBuffer.getHeight();
+		out.write(("P6\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+
+		// converts a row at a time, so there is only ever one row's worth of bytes
+		int[] pixels = frameBuffer.getPixels();
+		byte[] row = new byte[width * 3];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0, i = y * width; x < width; x++, i++) {
+				row[x * 3] = (byte) (pixels[i] >> 16);
+				row[x * 3 + 1] = (byte) (pixels[i] >> 8);
+				row[x * 3 + 2] = (byte) pixels[i];
+			}
+			out.write(row);
+		}
+
+		out.flush();
+
+	}
+
+}
+
+// code for comp261 assignments
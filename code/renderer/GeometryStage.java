@@ -0,0 +1,436 @@
+package renderer;
+
+import java.awt.Color;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The front half of the pipeline: works out which polygons are visible, shades
+ * them, and sets up their edge lists, ready for a rasterizer to draw.
+ *
+ * Every polygon can be done on its own, so the mesh is split into chunks which
+ * are processed in parallel on a ForkJoinPool. The results are written into
+ * arrays indexed by the polygon's index in the mesh, so each chunk writes to its
+ * own part of each array and the results come out in mesh order no matter which
+ * thread did the work. The edge lists are all packed into one array, holding just
+ * the rows on screen of the visible polygons, so once that has grown big enough
+ * setting them up each frame doesn't allocate anything.
+ */
+public class GeometryStage {
+
+	/** The default number of polygons a single task processes */
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	private final int width, height;	// the size of the screen
+	private final int chunkSize;		// the most polygons a single task will process
+	private final ForkJoinPool pool;	// the pool the chunks are processed on
+
+	// the results, indexed by polygon. These only grow, so they are reused between frames
+	private int triangleCount;
+	private boolean[] visible = new boolean[0];		// facing the camera and at least partly on screen
+	private int[] colours = new int[0];				// the packed shaded colour
+	private int[] bounds = new int[0];				// the on screen minX, minY, maxX, maxY (all inclusive)
+	private float[] nearest = new float[0];			// the closest z any of its pixels could have
+	private int[] rowOffsets = new int[0];			// where its edge list starts in rows
+
+	// the edge list rows of every visible polygon one after the other, which only grows as well
+	private float[] rows = new float[0];
+
+	// for smooth shading, the light reaching each vertex as 3 floats (red, green, blue), which the
+	// edge lists are coloured from. smooth says whether the last call to process was smooth shaded
+	private float[] vertexLights = new float[0];
+	private boolean smooth;
+
+	// when halfSpace is true, the polygons are drawn with EdgeFunctionRasterizer straight from the
+	// mesh, so no edge lists are made. mesh is the one last processed, for drawing from
+	private boolean halfSpace = false;
+	private MeshBuffer mesh;
+
+	// the nearest depths are only worked out when something is going to cull with them
+	private boolean occlusionCulling = false;
+
+	/**
+	 * Constructs a GeometryStage using the default chunk size and the common pool
+	 *
+	 * @param width the width of the screen
+	 * @param height the height of the screen
+	 */
+	public GeometryStage(int width, int height) {
+		this(width, height, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs a GeometryStage
+	 *
+	 * @param width the width of the screen
+	 * @param height the height of the screen
+	 * @param chunkSize the most polygons a single task will process
+	 * @param pool the pool to process the chunks on
+	 */
+	public GeometryStage(int width, int height, int chunkSize, ForkJoinPool pool) {
+		if (chunkSize <= 0)
+			throw new IllegalArgumentException("GeometryStage: chunk size must be positive, was " + chunkSize);
+
+		this.width = width;
+		this.height = height;
+		this.chunkSize = chunkSize;
+		this.pool = pool;
+	}
+
+	/**
+	 * Hides, shades and sets up every polygon in the mesh. The lights are only read,
+	 * so they can safely be shared between the threads.
+	 *
+	 * @param mesh the polygons
+	 * @param lights the lights in the scene
+	 * @param ambientLight the ambient light in the scene
+	 * @deprecated packs the lights again every frame, use
+	 *             {@link #process(MeshBuffer, LightArray, Color)} with
+	 *             {@link Scene#getLightArray()} instead
+	 */
+	@Deprecated
+	public void process(MeshBuffer mesh, Map<Vector3D, Color> lights, Color ambientLight) {
+		process(mesh, new LightArray(lights), ambientLight, true);
+	}
+
+	/**
+	 * The same as the method above, with the lights already packed into arrays
+	 *
+	 * @param mesh the polygons
+	 * @param lights the lights in the scene
+	 * @param ambientLight the ambient light in the scene
+	 */
+	public void process(MeshBuffer mesh, LightArray lights, Color ambientLight) {
+		process(mesh, lights, ambientLight, true);
+	}
+
+	/**
+	 * Hides and sets up every polygon in the mesh, but doesn't shade them. Deferred
+	 * shading only shades the polygons that end up on screen, after they're drawn.
+	 *
+	 * @param mesh the polygons
+	 */
+	public void process(MeshBuffer mesh) {
+		process(mesh, null, null, false);
+	}
+
+	/**
+	 * Hides and sets up every polygon in the mesh for smooth (Gouraud) shading. Rather than
+	 * a colour per polygon, the light reaching each vertex is worked out once, and each edge
+	 * list carries the colour at its corners down its sides, to be blended across each span.
+	 *
+	 * @param mesh the polygons
+	 * @param lights the lights in the scene
+	 * @param ambientLight the ambient light in the scene
+	 */
+	public void processSmooth(MeshBuffer mesh, LightArray lights, Color ambientLight) {
+
+		int vertexCount = mesh.getVertexCount();
+		if (vertexLights.length < vertexCount * 3) vertexLights = new float[vertexCount * 3];
+
+		// the vertex normals are worked out here for the same reason as the normals below
+		mesh.getVertexNormals();
+
+		VertexTask task = new VertexTask(mesh, lights, ambientLight, 0, vertexCount);
+		if (vertexCount <= chunkSize) task.compute();
+		else pool.invoke(task);
+
+		process(mesh, lights, ambientLight, false, true);
+
+	}
+
+	private void process(MeshBuffer mesh, LightArray lights, Color ambientLight, boolean shade) {
+		process(mesh, lights, ambientLight, shade, false);
+	}
+
+	private void process(MeshBuffer mesh, LightArray lights, Color ambientLight, boolean shade, boolean smooth) {
+
+		this.mesh = mesh;
+		this.smooth = smooth;
+		triangleCount = mesh.getTriangleCount();
+
+		if (visible.length < triangleCount) {
+			visible = new boolean[triangleCount];
+			colours = new int[triangleCount];
+			bounds = new int[triangleCount * 4];
+			nearest = new float[triangleCount];
+			rowOffsets = new int[triangleCount];
+		}
+
+		// makes sure the normals are worked out here, rather than by whichever task asks for them first
+		mesh.getNormals();
+
+		GeometryTask task = new GeometryTask(mesh, lights, ambientLight, shade, 0, triangleCount);
+
+		// a small mesh isn't worth handing over to the pool
+		if (triangleCount <= chunkSize) task.compute();
+		else pool.invoke(task);
+
+		if (halfSpace) return;
+
+		// now that we know which polygons are visible and which rows they cover, each one is
+		// given its part of the rows, which needs the parts before it so isn't done in parallel
+		int stride = EdgeList.getStride(smooth ? EdgeList.SMOOTH : EdgeList.FLAT);
+		int total = 0;
+		for (int i = 0; i < triangleCount; i++) {
+			if (!visible[i]) continue;
+			rowOffsets[i] = total;
+			// the edge list keeps the row after the last scanline as well
+			total += (bounds[i * 4 + 3] - bounds[i * 4 + 1] + 2) * stride;
+		}
+
+		// with some room to spare, so turning the scene a little doesn't grow it again
+		if (rows.length < total) rows = new float[total + total / 4];
+
+		SetupTask setup = new SetupTask(mesh, 0, triangleCount);
+		if (triangleCount <= chunkSize) setup.compute();
+		else pool.invoke(setup);
+
+	}
+
+	/**
+	 * Processes a single polygon, writing its results into the arrays
+	 */
+	private void processTriangle(MeshBuffer mesh, int i, LightArray lights, Color ambientLight, boolean shade) {
+
+		visible[i] = false;
+
+		if (Pipeline.isHidden(mesh, i)) return;
+
+		float[] p = mesh.getVertices();
+		int v1 = mesh.offset(i, 0), v2 = mesh.offset(i, 1), v3 = mesh.offset(i, 2);
+		int minY, maxY;
+
+		if (halfSpace) {
+
+			// every pixel the polygon can touch, which is all the tiles need to know
+			minY = Math.max(0, (int) Math.floor(Math.min(p[v1 + 1], Math.min(p[v2 + 1], p[v3 + 1]))));
+			maxY = Math.min(height - 1, (int) Math.ceil(Math.max(p[v1 + 1], Math.max(p[v2 + 1], p[v3 + 1]))));
+
+		} else {
+
+			// the rows the edge list will have on screen, the scanlines drawn are its startY
+			// up to (but not including) its endY. It's set up once these have all been found
+			minY = Math.max(0, Pipeline.findMinY(p, v1, v2, v3));
+			maxY = Math.min(height, Pipeline.findMaxY(p, v1, v2, v3)) - 1;
+
+		}
+
+		// every span lies between the leftmost and rightmost vertex
+		int minX = Math.max(0, (int) Math.floor(Math.min(p[v1], Math.min(p[v2], p[v3])))),
+			maxX = Math.min(width - 1, (int) Math.ceil(Math.max(p[v1], Math.max(p[v2], p[v3]))));
+
+		// completely off screen, so there is nothing to draw
+		if (minX > maxX || minY > maxY) return;
+
+		visible[i] = true;
+		if (shade) colours[i] = Pipeline.getShading(mesh, i, lights, ambientLight);
+		bounds[i * 4] = minX;
+		bounds[i * 4 + 1] = minY;
+		bounds[i * 4 + 2] = maxX;
+		bounds[i * 4 + 3] = maxY;
+
+		// worked out the same way each rasterizer works out depths, since a pixel can come out closer than every corner
+		if (occlusionCulling) nearest[i] = halfSpace ? EdgeFunctionRasterizer.getNearestDepth(mesh, i, width, height)
+				: Pipeline.getNearestDepth(mesh, i, width, height);
+
+	}
+
+	/**
+	 * Points an edge list at the rows of a visible polygon, which the last call to process set up.
+	 * Nothing is copied, so the edge list should only be read from until process is called again
+	 *
+	 * @param i the index of the polygon
+	 * @param eL the edge list to point at its rows
+	 * @return eL
+	 */
+	public EdgeList getEdgeList(int i, EdgeList eL) {
+		eL.share(rows, rowOffsets[i]);
+		eL.reset(bounds[i * 4 + 1], bounds[i * 4 + 3] + 1, smooth ? EdgeList.SMOOTH : EdgeList.FLAT);
+		return eL;
+	}
+
+	/**
+	 * Returns whether the polygons are set up to be drawn with EdgeFunctionRasterizer, in which
+	 * case no edge lists are made
+	 */
+	public boolean isHalfSpace() {
+		return halfSpace;
+	}
+
+	/**
+	 * Sets whether the polygons are set up to be drawn with EdgeFunctionRasterizer, or with edge lists
+	 */
+	public void setHalfSpace(boolean halfSpace) {
+		this.halfSpace = halfSpace;
+	}
+
+	/**
+	 * Returns whether the nearest depth of each polygon is worked out, for occlusion culling
+	 */
+	public boolean isOcclusionCulling() {
+		return occlusionCulling;
+	}
+
+	/**
+	 * Sets whether the nearest depth of each polygon is worked out. If it isn't, getNearest
+	 * shouldn't be used
+	 */
+	public void setOcclusionCulling(boolean occlusionCulling) {
+		this.occlusionCulling = occlusionCulling;
+	}
+
+	/**
+	 * Returns the mesh the last call to process was given
+	 */
+	public MeshBuffer getMesh() {
+		return mesh;
+	}
+
+	/**
+	 * Returns the light reaching each vertex if the last call to process was smooth shaded, otherwise null
+	 */
+	public float[] getVertexLights() {
+		return smooth ? vertexLights : null;
+	}
+
+	/**
+	 * Returns the number of polygons processed by the last call to process
+	 */
+	public int getTriangleCount() {
+		return triangleCount;
+	}
+
+	/**
+	 * Returns whether each polygon should be drawn
+	 */
+	public boolean[] getVisible() {
+		return visible;
+	}
+
+	/**
+	 * Returns the packed shaded colour of each visible polygon, which isn't set if the polygons weren't shaded
+	 */
+	public int[] getColours() {
+		return colours;
+	}
+
+	/**
+	 * Returns the on screen bounding box of each visible polygon, as minX, minY, maxX, maxY
+	 */
+	public int[] getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Returns the closest depth any pixel of each visible polygon could be drawn at, for occlusion
+	 * culling. These are only worked out if occlusion culling is turned on
+	 */
+	public float[] getNearest() {
+		return nearest;
+	}
+
+	/**
+	 * Works out the light reaching a range of vertices, splitting the range in half
+	 * until it's no bigger than a chunk
+	 */
+	@SuppressWarnings("serial")
+	private class VertexTask extends RecursiveAction {
+
+		private final MeshBuffer mesh;
+		private final LightArray lights;
+		private final Color ambientLight;
+		private final int from, to;		// the range of vertices, to is exclusive
+
+		VertexTask(MeshBuffer mesh, LightArray lights, Color ambientLight, int from, int to) {
+			this.mesh = mesh;
+			this.lights = lights;
+			this.ambientLight = ambientLight;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				Pipeline.getVertexLights(mesh, lights, ambientLight, vertexLights, from, to);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new VertexTask(mesh, lights, ambientLight, from, mid),
+						  new VertexTask(mesh, lights, ambientLight, mid, to));
+			}
+		}
+	}
+
+	/**
+	 * Sets up the edge lists of the visible polygons in a range, each in its own part
+	 * of the rows, splitting the range in half until it's no bigger than a chunk
+	 */
+	@SuppressWarnings("serial")
+	private class SetupTask extends RecursiveAction {
+
+		private final MeshBuffer mesh;
+		private final int from, to;		// the range of polygons, to is exclusive
+
+		SetupTask(MeshBuffer mesh, int from, int to) {
+			this.mesh = mesh;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				// only the rows on screen are kept, which is all the room each polygon was given
+				EdgeList eL = new EdgeList();
+				for (int i = from; i < to; i++) {
+					if (!visible[i]) continue;
+					eL.share(rows, rowOffsets[i]);
+					Pipeline.computeEdgeList(mesh, i, smooth ? vertexLights : null, eL, 0, height);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new SetupTask(mesh, from, mid), new SetupTask(mesh, mid, to));
+			}
+		}
+	}
+
+	/**
+	 * Processes a range of polygons, splitting the range in half until it's no
+	 * bigger than a chunk
+	 */
+	@SuppressWarnings("serial")
+	private class GeometryTask extends RecursiveAction {
+
+		private final MeshBuffer mesh;
+		private final LightArray lights;
+		private final Color ambientLight;
+		private final boolean shade;
+		private final int from, to;		// the range of polygons, to is exclusive
+
+		GeometryTask(MeshBuffer mesh, LightArray lights, Color ambientLight, boolean shade, int from, int to) {
+			this.mesh = mesh;
+			this.lights = lights;
+			this.ambientLight = ambientLight;
+			this.shade = shade;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				for (int i = from; i < to; i++)
+					processTriangle(mesh, i, lights, ambientLight, shade);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new GeometryTask(mesh, lights, ambientLight, shade, from, mid),
+						  new GeometryTask(mesh, lights, ambientLight, shade, mid, to));
+			}
+		}
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,236 @@
+package renderer;
+
+import java.util.Arrays;
+
+/**
+ * A low resolution pyramid over a DepthBuffer, used to throw away polygons that
+ * are completely behind what has already been drawn without drawing them.
+ *
+ * Level 0 keeps the furthest depth in each CELL_SIZE x CELL_SIZE block of pixels,
+ * and each level above keeps the furthest depth of CELL_SIZE x CELL_SIZE cells of
+ * the level below, up to a level with a single cell. If the nearest point of a
+ * polygon is no closer than the furthest depth of every cell its bounding box
+ * covers, none of its pixels could pass the depth test, so it can be skipped.
+ * The test starts at the top and only goes down into the cells that can't rule
+ * the polygon out on their own.
+ *
+ * Drawing a polygon only ever brings depths closer, so a cell that hasn't been
+ * updated since something was drawn in it is still safe to test against, just
+ * less likely to rule things out. Nothing is worked out when a polygon is drawn,
+ * the level 0 cells it covers are just marked as changed. A test that gets down
+ * to level 0 looks at the pixels themselves, stopping at the first one in the
+ * rectangle that's too far away. A changed cell it gets all the way through is
+ * worked out again, and so are the cells above it on the way back up.
+ * This also means tiles drawing in parallel can share one pyramid without
+ * locking: a cell worked out while another tile is drawing into it can only come
+ * out too far away, never too close.
+ */
+public class HiZBuffer {
+
+	private static final int CELL_BITS = 3;
+	/** The width and height of a cell, in cells (or pixels for level 0) of the level below */
+	public static final int CELL_SIZE = 1 << CELL_BITS;
+
+	private final DepthBuffer depthBuffer;
+	private final int width, height;		// the size of the depth buffer
+
+	// the furthest depth of each cell on each level, a row at a time, and the size of each level
+	private final float[][] levels;
+	private final int[] levelWidths, levelHeights;
+	// whether anything under each cell has been drawn or worked out again since its depth was worked out
+	private final boolean[][] changed;
+
+	/**
+	 * Constructs a pyramid over a depth buffer
+	 *
+	 * @param depthBuffer the depth buffer, which should be cleared at the same time as this
+	 */
+	public HiZBuffer(DepthBuffer depthBuffer) {
+		this.depthBuffer = depthBuffer;
+		this.width = depthBuffer.getWidth();
+		this.height = depthBuffer.getHeight();
+
+		// works out how many levels there are, until one cell covers the whole buffer
+		int count = 1;
+		for (long size = CELL_SIZE; size < Math.max(width, height); size *= CELL_SIZE) count++;
+
+		levels = new float[count][];
+		changed = new boolean[count][];
+		levelWidths = new int[count];
+		levelHeights = new int[count];
+
+		int cellPixels = CELL_SIZE;
+		for (int l = 0; l < count; l++, cellPixels *= CELL_SIZE) {
+			levelWidths[l] = (width + cellPixels - 1) / cellPixels;
+			levelHeights[l] = (height + cellPixels - 1) / cellPixels;
+			levels[l] = new float[levelWidths[l] * levelHeights[l]];
+			changed[l] = new boolean[levels[l].length];
+		}
+
+		clear();
+	}
+
+	/**
+	 * Resets every cell to infinitely far away, to go with clearing the depth buffer
+	 */
+	public void clear() {
+		for (int l = 0; l < levels.length; l++) {
+			Arrays.fill(levels[l], Float.POSITIVE_INFINITY);
+			Arrays.fill(changed[l], false);
+		}
+	}
+
+	/**
+	 * Returns the number of levels in the pyramid
+	 */
+	public int getLevelCount() {
+		return levels.length;
+	}
+
+	/**
+	 * Marks the cells a polygon was drawn over as changed
+	 *
+	 * @param minX the leftmost x drawn (inclusive)
+	 * @param minY the top y drawn (inclusive)
+	 * @param maxX the rightmost x drawn (inclusive)
+	 * @param maxY the bottom y drawn (inclusive)
+	 */
+	public void markDrawn(int minX, int minY, int maxX, int maxY) {
+		for (int l = 0, shift = CELL_BITS; l < levels.length; l++, shift += CELL_BITS) {
+			for (int cy = minY >> shift; cy <= maxY >> shift; cy++)
+				for (int cx = minX >> shift; cx <= maxX >> shift; cx++)
+					changed[l][cy * levelWidths[l] + cx] = true;
+		}
+	}
+
+	/**
+	 * Returns whether every pixel in a rectangle is already at least as close as z, so a
+	 * polygon inside the rectangle whose nearest point is z can't be seen
+	 *
+	 * @param minX the leftmost x (inclusive)
+	 * @param minY the top y (inclusive)
+	 * @param maxX the rightmost x (inclusive)
+	 * @param maxY the bottom y (inclusive)
+	 * @param z the nearest depth of the polygon
+	 */
+	public boolean isOccluded(int minX, int minY, int maxX, int maxY, float z) {
+		// nothing is further away than not a number, so it would pass every cell without this
+		if (Float.isNaN(z)) return false;
+
+		int top = levels.length - 1;
+		return isOccluded(top, 0, 0, levelWidths[top], levelHeights[top], minX, minY, maxX, maxY, z);
+	}
+
+	/**
+	 * Checks the cells of a level from (fromX, fromY) up to (toX, toY) that are inside the
+	 * rectangle, going down into the ones that are further away than z
+	 */
+	private boolean isOccluded(int level, int fromX, int fromY, int toX, int toY, int minX, int minY, int maxX, int maxY, float z) {
+
+		int shift = CELL_BITS * (level + 1);
+
+		// the cells of this level the rectangle covers
+		int startX = Math.max(fromX, minX >> shift), endX = Math.min(Math.min(toX, levelWidths[level]), (maxX >> shift) + 1);
+		int startY = Math.max(fromY, minY >> shift), endY = Math.min(Math.min(toY, levelHeights[level]), (maxY >> shift) + 1);
+
+		for (int cy = startY; cy < endY; cy++) {
+			for (int cx = startX; cx < endX; cx++) {
+
+				// the depth kept for a cell is never closer than it should be, so if that's enough there's nothing else to do
+				int i = cy * levelWidths[level] + cx;
+				if (levels[level][i] <= z) continue;
+
+				if (level == 0) {
+					if (!isOccluded(cx, cy, i, minX, minY, maxX, maxY, z)) return false;
+				} else {
+					if (!isOccluded(level - 1, cx * CELL_SIZE, cy * CELL_SIZE, (cx + 1) * CELL_SIZE, (cy + 1) * CELL_SIZE,
+							minX, minY, maxX, maxY, z))
+						return false;
+
+					// the cells below have just been checked, so this one can be worked out again if any of them changed
+					if (changed[level][i]) {
+						changed[level][i] = false;
+						levels[level][i] = getDepth(level, cx, cy);
+						markParents(level, cx, cy);
+					}
+				}
+
+			}
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * Checks the pixels of a level 0 cell that are inside the rectangle, stopping at the first
+	 * one that's further away than z. If something has been drawn in the cell, all of it is gone
+	 * through so its depth can be worked out again at the same time
+	 */
+	private boolean isOccluded(int cx, int cy, int i, int minX, int minY, int maxX, int maxY, float z) {
+
+		int cellX = cx << CELL_BITS, cellY = cy << CELL_BITS;
+		boolean refresh = changed[0][i];
+
+		// the whole cell if it's being worked out again, otherwise just the part in the rectangle
+		int sx = cellX, sy = cellY, ex = Math.min(width, cellX + CELL_SIZE), ey = Math.min(height, cellY + CELL_SIZE);
+		if (!refresh) {
+			sx = Math.max(sx, minX);
+			sy = Math.max(sy, minY);
+			ex = Math.min(ex, maxX + 1);
+			ey = Math.min(ey, maxY + 1);
+		}
+
+		// cleared before reading, so anything drawn while this is worked out marks it again
+		if (refresh) changed[0][i] = false;
+
+		float[] depths = depthBuffer.getDepths();
+		float max = Float.NEGATIVE_INFINITY;
+		for (int y = sy; y < ey; y++) {
+			boolean rowInside = y >= minY && y <= maxY;
+			for (int x = sx, p = y * width + x; x < ex; x++, p++) {
+				float depth = depths[p];
+				if (depth > z && rowInside && x >= minX && x <= maxX) {
+					// the cell hasn't been worked out after all
+					if (refresh) changed[0][i] = true;
+					return false;
+				}
+				if (depth > max) max = depth;
+			}
+		}
+
+		if (refresh) {
+			levels[0][i] = max;
+			markParents(0, cx, cy);
+		}
+		return true;
+
+	}
+
+	/**
+	 * Returns the furthest depth kept for the cells below a cell
+	 */
+	private float getDepth(int level, int cx, int cy) {
+		float[] below = levels[level - 1];
+		int endX = Math.min(levelWidths[level - 1], (cx + 1) * CELL_SIZE), endY = Math.min(levelHeights[level - 1], (cy + 1) * CELL_SIZE);
+		float max = Float.NEGATIVE_INFINITY;
+		for (int y = cy * CELL_SIZE; y < endY; y++)
+			for (int x = cx * CELL_SIZE, p = y * levelWidths[level - 1] + x; x < endX; x++, p++)
+				if (below[p] > max) max = below[p];
+		return max;
+	}
+
+	/**
+	 * Marks every cell above a cell as changed, after the cell was worked out again
+	 */
+	private void markParents(int level, int cx, int cy) {
+		for (int l = level + 1; l < levels.length; l++) {
+			cx >>= CELL_BITS;
+			cy >>= CELL_BITS;
+			changed[l][cy * levelWidths[l] + cx] = true;
+		}
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,74 @@
+package renderer;
+
+import java.awt.Color;
+import java.util.Map;
+
+/**
+ * The directional lights of a scene packed into primitive arrays, which is what
+ * shading reads. Each light is a unit direction (3 floats) and a colour (3
+ * floats, 0 to 255), stored one light after another in the same order as the
+ * map they came from.
+ *
+ * Shading a polygon with the Map meant a hash lookup and a cosine for every
+ * light for each of red, green and blue. With the arrays it's one dot product
+ * per light, and all three channels are added up at once.
+ */
+public class LightArray {
+
+	private final int count;			// the number of lights
+	private final float[] directions;	// the unit direction of each light, 3 floats per light
+	private final float[] colours;		// the red, green and blue of each light, 3 floats per light
+
+	/**
+	 * Packs the lights from a map of direction to colour, which can be null for no lights
+	 *
+	 * @param lights
+	 */
+	public LightArray(Map<Vector3D, Color> lights) {
+		this.count = lights == null ? 0 : lights.size();
+		this.directions = new float[count * 3];
+		this.colours = new float[count * 3];
+
+		if (lights == null) return;
+
+		int o = 0;
+		for (Map.Entry<Vector3D, Color> light : lights.entrySet()) {
+			Vector3D dir = light.getKey();
+			// a light with no direction can't light anything, so it is left as (0, 0, 0)
+			if (dir.mag > 0) {
+				directions[o] = dir.x / dir.mag;
+				directions[o + 1] = dir.y / dir.mag;
+				directions[o + 2] = dir.z / dir.mag;
+			}
+			Color colour = light.getValue();
+			colours[o] = colour.getRed();
+			colours[o + 1] = colour.getGreen();
+			colours[o + 2] = colour.getBlue();
+			o += 3;
+		}
+	}
+
+	/**
+	 * Returns the number of lights
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the unit direction of each light, 3 floats per light
+	 */
+	public float[] getDirections() {
+		return directions;
+	}
+
+	/**
+	 * Returns the red, green and blue of each light from 0 to 255, 3 floats per light
+	 */
+	public float[] getColours() {
+		return colours;
+	}
+
+}
+
+// code for comp261 assignments
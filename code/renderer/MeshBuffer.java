@@ -0,0 +1,383 @@
+package renderer;
+
+import java.util.Arrays;
+
+/**
+ * MeshBuffer stores every triangle of a scene in flat primitive arrays, rather
+ * than as a Polygon object holding three Vector3D objects and a Color.
+ *
+ * The mesh is indexed: each unique vertex is stored once, as three interleaved
+ * floats (x, y, z) in the vertices array, and each triangle is three ints in the
+ * indices array saying which vertices are its corners. Since most vertices in a
+ * model are shared by around six triangles, transforming the vertices array
+ * does far less work than transforming every corner of every triangle. The
+ * reflectance of each triangle is stored as a packed rgb int (0xRRGGBB).
+ *
+ * The unit normal of each triangle is kept too, since both hiding and shading
+ * need it. It's only worked out again after the vertices change, or turned
+ * straight from the model's normals when the mesh is a transformed view.
+ */
+public class MeshBuffer {
+
+	/** The default distance under which two corners are welded into the same vertex */
+	public static final float DEFAULT_WELD_EPSILON = 1e-5f;
+
+	private final int triangleCount;	// the number of triangles in the mesh
+	private final int vertexCount;		// the number of unique vertices in the mesh
+	private final float[] vertices;		// the xyz of each unique vertex, 3 floats per vertex
+	private final int[] indices;		// the vertex index of each corner, 3 ints per triangle
+	private final int[] colours;		// the packed rgb reflectance of each triangle
+
+	// the unit normal of each triangle, 3 floats per triangle, (0, 0, 0) if the triangle has no area.
+	// normalsChanged is volatile so normals worked out on one thread can be read by the others
+	private float[] normals;
+	private volatile boolean normalsChanged = true;
+
+	// the unit normal of each vertex for smooth shading, the average of the normals of the triangles
+	// around it. For a transformed view, they're turned from normalSource's by normalTransform instead
+	private float[] vertexNormals;
+	private volatile boolean vertexNormalsChanged = true;
+	private MeshBuffer normalSource;
+	private Transform normalTransform;
+
+	/**
+	 * Constructs an empty mesh with room for the given number of triangles, where
+	 * no vertices are shared (so triangle t uses vertices 3t, 3t+1 and 3t+2)
+	 *
+	 * @param triangleCount
+	 */
+	public MeshBuffer(int triangleCount) {
+		this(new float[triangleCount * 9], identityIndices(triangleCount), new int[triangleCount]);
+	}
+
+	/**
+	 * Constructs a mesh around arrays that have already been filled in.
+	 * The arrays are used directly, not copied.
+	 *
+	 * @param vertices 3 floats per vertex
+	 * @param indices 3 vertex indices per triangle
+	 * @param colours one packed rgb int per triangle
+	 */
+	public MeshBuffer(float[] vertices, int[] indices, int[] colours) {
+		if (indices.length != colours.length * 3)
+			throw new IllegalArgumentException("MeshBuffer: " + indices.length
+					+ " indices does not match " + colours.length + " triangles");
+		if (vertices.length % 3 != 0)
+			throw new IllegalArgumentException("MeshBuffer: " + vertices.length
+					+ " is not a whole number of vertices");
+
+		this.triangleCount = colours.length;
+		this.vertexCount = vertices.length / 3;
+		this.vertices = vertices;
+		this.indices = indices;
+		this.colours = colours;
+	}
+
+	/**
+	 * Makes the index buffer for a mesh where no vertices are shared
+	 */
+	private static int[] identityIndices(int triangleCount) {
+		int[] indices = new int[triangleCount * 3];
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = i;
+		return indices;
+	}
+
+	/**
+	 * Returns the number of triangles
+	 */
+	public int getTriangleCount() {
+		return triangleCount;
+	}
+
+	/**
+	 * Returns the number of unique vertices
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * Returns the interleaved vertex array, 3 floats per vertex.
+	 * After writing to it directly, call verticesChanged so the normals are worked out again
+	 */
+	public float[] getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Returns the index array, 3 vertex indices per triangle
+	 */
+	public int[] getIndices() {
+		return indices;
+	}
+
+	/**
+	 * Returns the packed rgb reflectance array, 1 int per triangle
+	 */
+	public int[] getColours() {
+		return colours;
+	}
+
+	/**
+	 * Returns the offset into the vertices array of the given corner of the given triangle
+	 *
+	 * @param tri the triangle
+	 * @param corner 0, 1 or 2
+	 */
+	public int offset(int tri, int corner) {
+		return indices[tri * 3 + corner] * 3;
+	}
+
+	/**
+	 * Copies a triangle into the mesh. Since this writes to the vertices the
+	 * triangle uses, it should only be used on a mesh that doesn't share them.
+	 *
+	 * @param tri the index of the triangle to set
+	 * @param points 9 floats, the xyz of each corner
+	 * @param rgb the packed rgb reflectance
+	 */
+	public void setTriangle(int tri, float[] points, int rgb) {
+		for (int corner = 0; corner < 3; corner++)
+			setVertex(tri, corner, points[corner * 3], points[corner * 3 + 1], points[corner * 3 + 2]);
+		colours[tri] = rgb & 0xFFFFFF;
+	}
+
+	/**
+	 * Sets a single corner of a triangle. If the vertex is shared this moves it
+	 * for every triangle that uses it.
+	 */
+	public void setVertex(int tri, int corner, float x, float y, float z) {
+		int o = offset(tri, corner);
+		vertices[o] = x;
+		vertices[o + 1] = y;
+		vertices[o + 2] = z;
+		if (!normalsChanged || !vertexNormalsChanged) verticesChanged();
+	}
+
+	/**
+	 * Should be called after writing to the vertices array directly, so the normals are worked out again
+	 */
+	public synchronized void verticesChanged() {
+		normalSource = null;
+		normalTransform = null;
+		normalsChanged = true;
+		vertexNormalsChanged = true;
+	}
+
+	/**
+	 * Returns the unit normal of each triangle, 3 floats per triangle. They are worked out
+	 * from the vertices the first time they're needed after the vertices change
+	 */
+	public float[] getNormals() {
+		if (normalsChanged) computeNormals();
+		return normals;
+	}
+
+	/**
+	 * Works out every normal as (v2-v1) x (v3-v2), divided by its length. This is synchronized
+	 * so that if several threads ask for the normals at once, only one works them out
+	 */
+	private synchronized void computeNormals() {
+
+		if (!normalsChanged) return;
+		if (normals == null) normals = new float[triangleCount * 3];
+
+		for (int t = 0; t < triangleCount; t++) {
+			int v1 = indices[t * 3] * 3, v2 = indices[t * 3 + 1] * 3, v3 = indices[t * 3 + 2] * 3;
+			float ax = vertices[v2] - vertices[v1], ay = vertices[v2 + 1] - vertices[v1 + 1], az = vertices[v2 + 2] - vertices[v1 + 2],
+				  bx = vertices[v3] - vertices[v2], by = vertices[v3 + 1] - vertices[v2 + 1], bz = vertices[v3 + 2] - vertices[v2 + 2];
+			setNormal(t, ay * bz - az * by, az * bx - ax * bz, ax * by - ay * bx);
+		}
+
+		normalsChanged = false;
+
+	}
+
+	/**
+	 * Sets this mesh's normals to another mesh's normals turned by a transform, rather than working them
+	 * out from the vertices. This is for a mesh whose vertices are the other mesh's with the transform applied
+	 *
+	 * @param source the mesh with the same triangles before the transform
+	 * @param transform the transform
+	 */
+	public synchronized void transformNormals(MeshBuffer source, Transform transform) {
+		if (normals == null) normals = new float[triangleCount * 3];
+		transform.multiplyNormals(source.getNormals(), normals, triangleCount);
+		normalsChanged = false;
+
+		// the vertex normals are only turned if they're asked for
+		normalSource = source;
+		normalTransform = transform;
+		vertexNormalsChanged = true;
+	}
+
+	/**
+	 * Returns the unit normal of each vertex, 3 floats per vertex, which is the average of the
+	 * normals of every triangle that uses it. These are only needed for smooth shading, so they're
+	 * worked out the first time they're asked for
+	 */
+	public float[] getVertexNormals() {
+		if (vertexNormalsChanged) computeVertexNormals();
+		return vertexNormals;
+	}
+
+	/**
+	 * Works out every vertex normal, by adding up the normals of the triangles around each vertex
+	 * then dividing by the length, or by turning the source mesh's if this is a transformed view
+	 */
+	private synchronized void computeVertexNormals() {
+
+		if (!vertexNormalsChanged) return;
+		if (vertexNormals == null) vertexNormals = new float[vertexCount * 3];
+
+		if (normalSource != null) {
+			normalTransform.multiplyNormals(normalSource.getVertexNormals(), vertexNormals, vertexCount);
+		} else {
+			float[] faces = getNormals();
+			Arrays.fill(vertexNormals, 0);
+			for (int c = 0; c < indices.length; c++) {
+				int t = c / 3, v = indices[c] * 3;
+				vertexNormals[v] += faces[t * 3];
+				vertexNormals[v + 1] += faces[t * 3 + 1];
+				vertexNormals[v + 2] += faces[t * 3 + 2];
+			}
+			for (int v = 0; v < vertexNormals.length; v += 3) {
+				float nx = vertexNormals[v], ny = vertexNormals[v + 1], nz = vertexNormals[v + 2];
+				float mag = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+				if (mag > 0) {
+					vertexNormals[v] = nx / mag;
+					vertexNormals[v + 1] = ny / mag;
+					vertexNormals[v + 2] = nz / mag;
+				}
+			}
+		}
+
+		vertexNormalsChanged = false;
+
+	}
+
+	/**
+	 * Stores a normal divided by its length, or (0, 0, 0) if it has none
+	 */
+	private void setNormal(int t, float nx, float ny, float nz) {
+		float mag = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+		if (mag > 0) {
+			normals[t * 3] = nx / mag;
+			normals[t * 3 + 1] = ny / mag;
+			normals[t * 3 + 2] = nz / mag;
+		} else {
+			normals[t * 3] = normals[t * 3 + 1] = normals[t * 3 + 2] = 0;
+		}
+	}
+
+	/**
+	 * Returns a single corner of a triangle as a Vector3D.
+	 * This creates a new object, so the pipeline should read the vertices array instead
+	 */
+	public Vector3D getVertex(int tri, int corner) {
+		int o = offset(tri, corner);
+		return new Vector3D(vertices[o], vertices[o + 1], vertices[o + 2]);
+	}
+
+	/**
+	 * Packs an r, g, b triple into a single int
+	 */
+	public static int packColour(int r, int g, int b) {
+		return (r << 16) | (g << 8) | b;
+	}
+
+	/**
+	 * Builds an indexed mesh out of unindexed triangles, as they are stored in the
+	 * scene files (every corner of every triangle written out in full). Corners
+	 * that are within epsilon of each other on every axis are welded into one
+	 * vertex, which keeps the position of the first corner that was seen.
+	 *
+	 * The corners are bucketed into a grid of epsilon sized cells, so each
+	 * corner only has to be compared against the vertices in its own cell and
+	 * the cells around it. With an epsilon of 0 only identical corners are welded.
+	 *
+	 * @param corners 9 floats per triangle
+	 * @param colours one packed rgb int per triangle
+	 * @param epsilon the welding distance
+	 */
+	public static MeshBuffer weld(float[] corners, int[] colours, float epsilon) {
+
+		int cornerCount = corners.length / 3;
+		boolean exact = !(epsilon > 0);
+
+		// an open hash table of linked chains, head holds the first vertex in each bucket and next the rest
+		int buckets = Integer.highestOneBit(Math.max(1, cornerCount * 2 - 1)) << 1;
+		int[] head = new int[buckets], next = new int[cornerCount];
+		Arrays.fill(head, -1);
+
+		float[] vertices = new float[corners.length];
+		int[] indices = new int[cornerCount];
+		int vertexCount = 0;
+
+		// when welding exactly only the corner's own cell has to be searched
+		int reach = exact ? 0 : 1;
+
+		for (int c = 0; c < cornerCount; c++) {
+
+			float x = corners[c * 3], y = corners[c * 3 + 1], z = corners[c * 3 + 2];
+			long cx = cell(x, epsilon, exact), cy = cell(y, epsilon, exact), cz = cell(z, epsilon, exact);
+
+			int found = -1;
+			for (int dx = -reach; dx <= reach && found < 0; dx++) {
+				for (int dy = -reach; dy <= reach && found < 0; dy++) {
+					for (int dz = -reach; dz <= reach && found < 0; dz++) {
+
+						// walks the chain, different cells can share a bucket so the distance still has to be checked
+						for (int v = head[hash(cx + dx, cy + dy, cz + dz) & (buckets - 1)]; v >= 0; v = next[v]) {
+							if (Math.abs(vertices[v * 3] - x) <= epsilon
+									&& Math.abs(vertices[v * 3 + 1] - y) <= epsilon
+									&& Math.abs(vertices[v * 3 + 2] - z) <= epsilon) {
+								found = v;
+								break;
+							}
+						}
+
+					}
+				}
+			}
+
+			// if there was no vertex close enough, adds this corner as a new one
+			if (found < 0) {
+				found = vertexCount++;
+				vertices[found * 3] = x;
+				vertices[found * 3 + 1] = y;
+				vertices[found * 3 + 2] = z;
+
+				int bucket = hash(cx, cy, cz) & (buckets - 1);
+				next[found] = head[bucket];
+				head[bucket] = found;
+			}
+
+			indices[c] = found;
+
+		}
+
+		return new MeshBuffer(Arrays.copyOf(vertices, vertexCount * 3), indices, colours);
+
+	}
+
+	/**
+	 * Finds which cell of the welding grid a coordinate is in
+	 */
+	private static long cell(float v, float epsilon, boolean exact) {
+		if (exact) return Float.floatToIntBits(v);
+		return (long) Math.floor(v / epsilon);
+	}
+
+	/**
+	 * Mixes the three cell coordinates into a single hash
+	 */
+	private static int hash(long x, long y, long z) {
+		long h = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL + z * 0x165667B19E3779F9L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
+
+// code for comp261 assignments
@@ -24,29 +24,24 @@ public class Pipeline {
 	 */
 	public static boolean isHidden(Polygon poly) {
 		// TODO fill this in.
-
-		// gets the normal vector
-		Vector3D[] vertices = poly.getVertices();
-		Vector3D normal = getNormal(vertices);
-
-		// the slides at one point say normal.z < 0, but this is the formula that works for me
-		return normal.z >= 0;
-
+		return isHidden(poly.getMesh(), poly.getIndex());
 	}
 
 	/**
-	 * Since I grab the normal more than once, saves this process into a method of its own
-	 * @param vertices
-	 * @return
+	 * The same as the method above, but reads the triangle straight out of the mesh
+	 * so no Vector3D objects need to be made
+	 *
+	 * @param mesh
+	 * @param tri the index of the triangle in the mesh
 	 */
-	private static Vector3D getNormal(Vector3D[] vertices) {
+	public static boolean isHidden(MeshBuffer mesh, int tri) {
 
-		// uses the minus method in the Vector3D class to do the cross product formula
-		Vector3D a = vertices[1].minus(vertices[0]),
-				 b = vertices[2].minus(vertices[1]);
+		// the normal is (v2-v1) x (v3-v2), which the mesh keeps, but only the z part of it is needed here
+		float normalZ = mesh.getNormals()[tri * 3 + 2];
+
+		// the slides at one point say normal.z < 0, but this is the formula that works for me
+		return normalZ >= 0;
 
-		// (v2-v1) x (v3-v2)
-		return a.crossProduct(b);
 	}
 
 	/**
@@ -61,26 +56,74 @@ public class Pipeline {
 	 * @param ambientLight
 	 *            The ambient light in the scene, i.e. light that doesn't depend
 	 *            on the direction.
+	 * @deprecated packs the lights again on every call, use
+	 *             {@link #getShading(MeshBuffer, int, LightArray, Color)} with
+	 *             {@link Scene#getLightArray()} instead
 	 */
+	@Deprecated
 	public static Color getShading(Polygon poly, Map<Vector3D, Color> lightDirection, Color ambientLight) {
 		// TODO fill this in.
+		return new Color(getShading(poly.getMesh(), poly.getIndex(), new LightArray(lightDirection), ambientLight));
+	}
+
+	/**
+	 * The same as the method above, but reads the triangle straight out of the mesh,
+	 * and returns the colour packed into an int so it can go straight into a FrameBuffer
+	 *
+	 * @param mesh
+	 * @param tri the index of the triangle in the mesh
+	 * @param lightDirection
+	 * @param ambientLight
+	 * @deprecated packs the lights again on every call, use
+	 *             {@link #getShading(MeshBuffer, int, LightArray, Color)} with
+	 *             {@link Scene#getLightArray()} instead
+	 */
+	@Deprecated
+	public static int getShading(MeshBuffer mesh, int tri, Map<Vector3D, Color> lightDirection, Color ambientLight) {
+		return getShading(mesh, tri, new LightArray(lightDirection), ambientLight);
+	}
 
-		// gets the normal vector
-		Vector3D[] vertices = poly.getVertices();
-		Vector3D normal = getNormal(vertices);
+	/**
+	 * The same as the method above, but with the lights already packed into arrays, which
+	 * is much quicker when shading lots of polygons with the same lights
+	 *
+	 * @param mesh
+	 * @param tri the index of the triangle in the mesh
+	 * @param lights
+	 * @param ambientLight
+	 */
+	public static int getShading(MeshBuffer mesh, int tri, LightArray lights, Color ambientLight) {
+
+		// the mesh keeps the unit normal of every polygon, and the light directions are unit too,
+		// so the cos of the angle between them is just the dot product
+		float[] normals = mesh.getNormals();
+		float nx = normals[tri * 3], ny = normals[tri * 3 + 1], nz = normals[tri * 3 + 2];
 
 		// grabs the reflectance of the polygon, needs to divide these numbers by 255.0f for multiplication later
-		float reflectRed = poly.getReflectance().getRed() / 255.0f,
-		      reflectGreen = poly.getReflectance().getGreen() / 255.0f,
-		      reflectBlue = poly.getReflectance().getBlue() / 255.0f;
+		int reflectance = mesh.getColours()[tri];
+		float reflectRed = ((reflectance >> 16) & 0xFF) / 255.0f,
+		      reflectGreen = ((reflectance >> 8) & 0xFF) / 255.0f,
+		      reflectBlue = (reflectance & 0xFF) / 255.0f;
+
+		// initially, the colour will just be the ambient light * the reflectance
+		int rC = (int)(ambientLight.getRed() * reflectRed),
+		    gC = (int)(ambientLight.getGreen() * reflectGreen),
+		    bC = (int)(ambientLight.getBlue() * reflectBlue);
+
+		float[] dirs = lights.getDirections(), cols = lights.getColours();
+		for (int o = 0; o < lights.getCount() * 3; o += 3) {
+
+			float cosTheta = Math.max(0, nx * dirs[o] + ny * dirs[o + 1] + nz * dirs[o + 2]);
+
+			// each channel is rounded down as each light is added, the same as setColor does
+			rC += (cols[o] * reflectRed) * cosTheta;
+			gC += (cols[o + 1] * reflectGreen) * cosTheta;
+			bC += (cols[o + 2] * reflectBlue) * cosTheta;
 
-		// uses my custom setColor() method to get the int colour of the polygons
-		// rgb value 0 = red, 1 = green, 2 = blue
-		int rC = setColor(ambientLight.getRed(),reflectRed, normal, lightDirection, 0),
-		    gC = setColor(ambientLight.getGreen(),reflectGreen, normal, lightDirection, 1),
-		    bC = setColor(ambientLight.getBlue(), reflectBlue, normal, lightDirection, 2);
+		}
 
-		return new Color(rC,gC,bC);
+		// since the colours have the potential to go out of bounds, they're clamped
+		return MeshBuffer.packColour(Math.max(0, Math.min(255, rC)), Math.max(0, Math.min(255, gC)), Math.max(0, Math.min(255, bC)));
 
 	}
 
@@ -99,6 +142,14 @@ public class Pipeline {
 	 * @return the color
 	 */
 	public static int setColor(int ambient, float reflectance, Vector3D normal, Map<Vector3D, Color> lightDirection, int rgb) {
+		return setColor(ambient, reflectance, normal.x, normal.y, normal.z, normal.mag, lightDirection, rgb);
+	}
+
+	/**
+	 * The same as the method above, but with the normal passed over as floats
+	 */
+	private static int setColor(int ambient, float reflectance, float nx, float ny, float nz, float mag,
+								Map<Vector3D, Color> lightDirection, int rgb) {
 
 		// initially, the colour will just be the ambient light * the reflectance
 		int color = (int)(ambient * reflectance);
@@ -107,7 +158,7 @@ public class Pipeline {
 		for (Vector3D lightDir : lightDirection.keySet()) {
 
 			// does the cosTheta calculation for the normal vector passed over
-			float cosTheta = normal.cosTheta(lightDir);
+			float cosTheta = (nx * lightDir.x + ny * lightDir.y + nz * lightDir.z) / mag / lightDir.mag;
 
 			// initialises the light added to 0
 			int light = 0;
@@ -151,59 +202,46 @@ public class Pipeline {
 		// if scene is null, can't rotate it
 		if (scene == null) return null;
 
-		Transform rotationX = Transform.newXRotation(xRot),
-				  rotationY = Transform.newYRotation(yRot);
-
-		// This translates all the points to the origin, then the later "fromOrigin" method translates them back
-		// This is so all the points will rotate about the centre of the screen, not the top left corner
-		// This will make the program fail the Rotating test cases, but make the object rotate about the centre instead (which I prefer)
-		translateToOrigin(scene);
-
-		for (Scene.Polygon p : scene.getPolygons()) {
-
-			Vector3D[] verts = p.getVertices();
-
-			// could use a for each loop, but you can't directly edit elements (ie. changing them to a new Vector3D) this way
-			for (int i = 0; i < verts.length; i++) {
-
-				if (xRot != 0f) verts[i] = rotationX.multiply(verts[i]);
-				if (yRot != 0f) verts[i] = rotationY.multiply(verts[i]);
-
+		// the x rotation then the y rotation, composed into the one matrix so that
+		// the vertices and lights are each only multiplied once
+		Transform rotation = Transform.newYRotation(yRot).compose(Transform.newXRotation(xRot));
+
+		// the vertices aren't touched, the rotation is just put in front of the scene's transform.
+		// this rotates about the origin rather than the centre of the object, but translateScene
+		// moves the object back to the centre of the screen before it's drawn anyway
+		scene.setTransform(rotation.compose(scene.getTransform()));
+
+		// a scene can hand out polygons that aren't in its mesh (like a subclass overriding getPolygons),
+		// which the transform doesn't move, so those are rotated where they are instead
+		if (!scene.ownsPolygons()) {
+			for (Scene.Polygon p : scene.getPolygons()) {
+				MeshBuffer mesh = p.getMesh();
+				for (int corner = 0; corner < 3; corner++) {
+					Vector3D v = rotation.multiply(mesh.getVertex(p.getIndex(), corner));
+					mesh.setVertex(p.getIndex(), corner, v.x, v.y, v.z);
+				}
 			}
-
 		}
 
-		// This translates all the points back from the origin
-		translateFromOrigin(scene);
+		// a scene made without any lights has none to rotate
+		Map<Vector3D, Color> lights = scene.getLights();
+		if (lights == null) return scene;
 
 		// uses a Map referencing the current lights, and creates a new map which will be passed back
-		Map<Vector3D, Color> lights = scene.getLights(),
-							 newLights = new LinkedHashMap<>();
+		Map<Vector3D, Color> newLights = new LinkedHashMap<>();
 
 		// cycles through the current keySet (can't modify this as a ConcurrentModification Exception will be thrown)
-		for (Vector3D light : lights.keySet()) {
+		for (Vector3D light : lights.keySet())
+			newLights.put(rotation.multiply(light),lights.get(light));
 
-			// does the xRotation first
-			if (xRot != 0f) {
-				newLights.put(rotationX.multiply(light),lights.get(light));
-			}
-			// if an xRotation has been done already, has to replace the object in the new map
-			if (yRot != 0f) {
-
-				if (xRot != 0f) {
-					newLights.replace(rotationY.multiply(light),lights.get(light));
-				} else {
-					newLights.put(rotationY.multiply(light),lights.get(light));
-				}
-
-			}
-
-		}
-
-		return new Scene(scene.getPolygons(), newLights);
+		scene.setLights(newLights);
+		return scene;
 
 	}
 
+	// how far off the centre of the screen a scene can be before translateScene moves it, in pixels
+	private static final float CENTRE_TOLERANCE = 1e-3f;
+
 	/**
 	 * This should translate the scene by the appropriate amount.
 	 * 
@@ -220,23 +258,12 @@ public class Pipeline {
 		float distX = (float)GUI.CANVAS_WIDTH/2f - centre[0],
 			  distY = (float)GUI.CANVAS_HEIGHT/2f - centre[1];
 
-		Transform translation = Transform.newTranslation(distX,distY,0f);
-
-		for (Scene.Polygon p : scene.getPolygons()) {
-
-			Vector3D[] verts = p.getVertices();
-
-			// could use a for each loop, but I prefer this method
-			for (int i = 0; i < verts.length; i++) {
-
-				// if the distance is actually being changed (which in most cases it will be)
-				if (distX != 0 && distY != 0) verts[i] = translation.multiply(verts[i]);
+		// if the distance is actually being changed (which it only is after the scene has been rotated).
+		// anything under a thousandth of a pixel is just rounding in the bounding box, and is left alone
+		if (Math.abs(distX) > CENTRE_TOLERANCE || Math.abs(distY) > CENTRE_TOLERANCE)
+			scene.translateView(distX, distY);
 
-			}
-
-		}
-
-		return new Scene(scene.getPolygons(), scene.getLights());
+		return scene;
 
 	}
 
@@ -252,73 +279,10 @@ public class Pipeline {
 		// gets the scale factor the scene needs to be boosted by
 		float scaleBy = getScale(scene);
 
-		// This translates all the points to the origin, then the later "fromOrigin" method translates them back
-		// This is so all the points will rotate about the centre of the screen, not the top left corner
-		// This will make the program fail the Rotating test cases, but make the object rotate about the centre instead (which I prefer)
-		translateToOrigin(scene);
-
-		Transform scale = Transform.newScale(scaleBy,scaleBy,scaleBy);
-
-		for (Scene.Polygon p : scene.getPolygons()) {
-
-			Vector3D[] verts = p.getVertices();
-
-			// could use a for each loop, but I prefer this method
-			for (int i = 0; i < verts.length; i++) {
-
-				verts[i] = scale.multiply(verts[i]);
-
-			}
-
-		}
-
-		// This translates all the points back from the origin
-		translateFromOrigin(scene);
-
-		return new Scene(scene.getPolygons(), scene.getLights());
-
-	}
-
-	/**
-	 * Returns a Transformation that would Translate all points to the origin (from their original points, to the centre)
-	 * This is because if you translate to the origin, rotate, and then translate back
-	 * you effectively rotate around the center point of the object
-	 * @param sc
-	 * @return
-	 */
-	private static void translateToOrigin(Scene sc) {
-
-		// calls my getCentres method which returns the x and y point of the centre
-		float[] centre = getCentres(sc);
-
-		// the transformation required to move the scene to the top left corner
-		Transform toOrigin = Transform.newTranslation((GUI.CANVAS_WIDTH  + centre[0]) - GUI.CANVAS_WIDTH/2f,
-													  (GUI.CANVAS_HEIGHT + centre[1]) - GUI.CANVAS_HEIGHT/2f,
-													  0f);
-
-		for (Scene.Polygon p : sc.getPolygons())
-			for (int i = 0; i < p.getVertices().length; i++)
-				p.getVertices()[i] = toOrigin.multiply(p.getVertices()[i]);
-
-	}
-
-	/**
-	 * Returns a Transformation that would Translate all points from the origin (to their original points)
-	 * This is because if you translate to the origin, rotate, and then translate back
-	 * you effectively rotate around the center point of the object
-	 * @param sc
-	 * @return
-	 */
-	private static void translateFromOrigin(Scene sc) {
-
-		// the transformation required to move the scene from the top left corner
-		Transform fromOrigin = Transform.newTranslation(GUI.CANVAS_WIDTH/2f,
-														GUI.CANVAS_HEIGHT/2f,
-														0f);
+		// like rotating, this scales about the origin and leaves translateScene to move it back to the centre
+		scene.setTransform(Transform.newScale(scaleBy,scaleBy,scaleBy).compose(scene.getTransform()));
 
-		for (Scene.Polygon p : sc.getPolygons())
-			for (int i = 0; i < p.getVertices().length; i++)
-				p.getVertices()[i] = fromOrigin.multiply(p.getVertices()[i]);
+		return scene;
 
 	}
 
@@ -341,28 +305,20 @@ public class Pipeline {
 	}
 
 	/**
-	 * Finds the outermost points of all the polygons in a scene
+	 * Finds the outermost points of all the polygons in a scene, from the scene's
+	 * bounding box rather than by going through every vertex
 	 * @param sc
 	 * @return
 	 */
 	private static float[] findOuterPoints(Scene sc){
 
-		float[] points = {Float.POSITIVE_INFINITY,		// 0, leftmost
-						  Float.NEGATIVE_INFINITY,		// 1, rightmost
-				   		  Float.POSITIVE_INFINITY,		// 2, uppermost
-						  Float.NEGATIVE_INFINITY,		// 3, lowermost
-						 };
-
-		for (Scene.Polygon p : sc.getPolygons()) {
-			for (Vector3D v : p.getVertices()) {
-				points[0] = Math.min(points[0], v.x);	// minimum between current point val and v.x
-				points[1] = Math.max(points[1], v.x);	// maximum between current point val and v.x
-				points[2] = Math.min(points[2], v.y);	// minimum between current point val and v.y
-				points[3] = Math.max(points[3], v.y);	// maximum between current point val and v.y
-			}
-		}
+		float[] bounds = sc.getBounds();
 
-		return points;
+		return new float[] {bounds[0],		// 0, leftmost
+							bounds[3],		// 1, rightmost
+							bounds[1],		// 2, uppermost
+							bounds[4],		// 3, lowermost
+						   };
 
 	}
 
@@ -398,24 +354,18 @@ public class Pipeline {
 	}
 
 	/**
-	 * Finds the closest and furthest points bordering the polygons on the z plane
+	 * Finds the closest and furthest points bordering the polygons on the z plane,
+	 * from the scene's bounding box
 	 * @param sc
 	 * @return
 	 */
 	private static float[] findZPoints(Scene sc) {
 
-		float[] points = {Float.POSITIVE_INFINITY,		// 0, closest
-						  Float.NEGATIVE_INFINITY		// 1, furthest
-		};
-
-		for (Scene.Polygon p : sc.getPolygons()) {
-			for (Vector3D v : p.getVertices()) {
-				points[0] = Math.min(points[0], v.z);	// minimum between point and v.z
-				points[1] = Math.max(points[1], v.z);	// maximum between point and v.z
-			}
-		}
+		float[] bounds = sc.getBounds();
 
-		return points;
+		return new float[] {bounds[2],		// 0, closest
+							bounds[5]		// 1, furthest
+		};
 
 	}
 
@@ -425,36 +375,132 @@ public class Pipeline {
 	 */
 	public static EdgeList computeEdgeList(Polygon poly) {
 		// TODO fill this in.
+		return computeEdgeList(poly.getMesh(), poly.getIndex());
+	}
 
-		Vector3D[] vectors = poly.getVertices();
+	/**
+	 * The same as the method above, but reads the triangle straight out of the mesh
+	 *
+	 * @param mesh
+	 * @param tri the index of the triangle in the mesh
+	 */
+	public static EdgeList computeEdgeList(MeshBuffer mesh, int tri) {
+		return computeEdgeList(mesh, tri, null, new EdgeList(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * The same as the method above, but for smooth shading: the edge list also carries
+	 * the colour of the polygon at each corner down its sides, which is the polygon's
+	 * reflectance times the light reaching that vertex
+	 *
+	 * @param mesh
+	 * @param tri the index of the triangle in the mesh
+	 * @param vertexLights the light reaching each vertex, from getVertexLights
+	 */
+	public static EdgeList computeEdgeList(MeshBuffer mesh, int tri, float[] vertexLights) {
+		return computeEdgeList(mesh, tri, vertexLights, new EdgeList(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Computes the edge list of a triangle into an edge list that is being reused, so
+	 * nothing is allocated once the edge list is big enough. Only the rows from minRow
+	 * to maxRow are kept, so an edge list reused for the rows of the screen never needs
+	 * more room than the screen is high
+	 *
+	 * @param mesh
+	 * @param tri the index of the triangle in the mesh
+	 * @param vertexLights the light reaching each vertex for smooth shading, or null for flat shading
+	 * @param eL the edge list to fill in
+	 * @param minRow the first row kept
+	 * @param maxRow the last row kept
+	 * @return eL
+	 */
+	public static EdgeList computeEdgeList(MeshBuffer mesh, int tri, float[] vertexLights, EdgeList eL, int minRow, int maxRow) {
+
+		float[] p = mesh.getVertices();
+		int v1 = mesh.offset(tri, 0), v2 = mesh.offset(tri, 1), v3 = mesh.offset(tri, 2);
 
 		// gets the top and bottom points bordering the polygons on the y plane
-		int maxY = findMaxY(vectors);
-		int minY = findMinY(vectors);
+		int maxY = Math.min(maxRow, findMaxY(p, v1, v2, v3));
+		int minY = Math.max(minRow, findMinY(p, v1, v2, v3));
 
-		// initialises the new EdgeList object here
-		EdgeList eL = new EdgeList(minY,maxY);
+		if (vertexLights == null) {
+			eL.reset(minY, maxY, EdgeList.FLAT);
+		} else {
+			eL.reset(minY, maxY, EdgeList.SMOOTH);
+
+			// the red, green and blue at each corner
+			int reflectance = mesh.getColours()[tri];
+			for (int c = 0; c < 3; c++) {
+				int v = mesh.offset(tri, c);
+				eL.setCorner(c, EdgeList.RED, Math.min(255, ((reflectance >> 16) & 0xFF) / 255.0f * vertexLights[v]));
+				eL.setCorner(c, EdgeList.GREEN, Math.min(255, ((reflectance >> 8) & 0xFF) / 255.0f * vertexLights[v + 1]));
+				eL.setCorner(c, EdgeList.BLUE, Math.min(255, (reflectance & 0xFF) / 255.0f * vertexLights[v + 2]));
+			}
+		}
 
-		// uses my custom addToEdgeList method
-		addToEdgeList(eL,vectors[0],vectors[1]);
-		addToEdgeList(eL,vectors[1],vectors[2]);
-		addToEdgeList(eL,vectors[2],vectors[0]);
+		// uses my custom addToEdgeList method, passing over the offsets of each vertex
+		addToEdgeList(eL,p,v1,v2,0,1);
+		addToEdgeList(eL,p,v2,v3,1,2);
+		addToEdgeList(eL,p,v3,v1,2,0);
 
 		return eL;
 	}
 
+	/**
+	 * Works out how much light reaches each vertex in a range, for smooth shading. This is the
+	 * ambient light plus each light times the cos of its angle to the vertex normal, so it only
+	 * costs one dot product per light per vertex, however many pixels the polygons cover
+	 *
+	 * @param mesh
+	 * @param lights
+	 * @param ambientLight
+	 * @param out the red, green and blue reaching each vertex, 3 floats per vertex
+	 * @param from the first vertex
+	 * @param to the vertex after the last one
+	 */
+	public static void getVertexLights(MeshBuffer mesh, LightArray lights, Color ambientLight, float[] out, int from, int to) {
+
+		float[] normals = mesh.getVertexNormals();
+		float[] dirs = lights.getDirections(), cols = lights.getColours();
+		float ambientRed = ambientLight.getRed(), ambientGreen = ambientLight.getGreen(), ambientBlue = ambientLight.getBlue();
+
+		for (int v = from * 3; v < to * 3; v += 3) {
+
+			float nx = normals[v], ny = normals[v + 1], nz = normals[v + 2];
+			float r = ambientRed, g = ambientGreen, b = ambientBlue;
+
+			for (int o = 0; o < lights.getCount() * 3; o += 3) {
+				float cosTheta = Math.max(0, nx * dirs[o] + ny * dirs[o + 1] + nz * dirs[o + 2]);
+				r += cols[o] * cosTheta;
+				g += cols[o + 1] * cosTheta;
+				b += cols[o + 2] * cosTheta;
+			}
+
+			out[v] = r;
+			out[v + 1] = g;
+			out[v + 2] = b;
+
+		}
+
+	}
+
 	/**
 	 * Finds the maximum y value of the polygon as an integer
 	 *
-	 * @param vects
+	 * @param p the vertices array
+	 * @param v1 the offset of the first vertex in the array
+	 * @param v2 the offset of the second vertex in the array
+	 * @param v3 the offset of the third vertex in the array
 	 * @return
 	 */
-	private static int findMaxY(Vector3D[] vects){
+	static int findMaxY(float[] p, int v1, int v2, int v3){
 
 		int maxY = Integer.MIN_VALUE;
 
-		for (Vector3D v : vects)
-			if (v.y > maxY) maxY = Math.round(v.y);
+		if (p[v1 + 1] > maxY) maxY = Math.round(p[v1 + 1]);
+		if (p[v2 + 1] > maxY) maxY = Math.round(p[v2 + 1]);
+		if (p[v3 + 1] > maxY) maxY = Math.round(p[v3 + 1]);
 
 		return maxY;
 
@@ -463,15 +509,19 @@ public class Pipeline {
 	/**
 	 * Finds the minimum y value of the polygon as an integer
 	 *
-	 * @param vects
+	 * @param p the vertices array
+	 * @param v1 the offset of the first vertex in the array
+	 * @param v2 the offset of the second vertex in the array
+	 * @param v3 the offset of the third vertex in the array
 	 * @return
 	 */
-	private static int findMinY(Vector3D[] vects){
+	static int findMinY(float[] p, int v1, int v2, int v3){
 
 		int minY = Integer.MAX_VALUE;
 
-		for (Vector3D v : vects)
-			if (v.y < minY) minY = Math.round(v.y);
+		if (p[v1 + 1] < minY) minY = Math.round(p[v1 + 1]);
+		if (p[v2 + 1] < minY) minY = Math.round(p[v2 + 1]);
+		if (p[v3 + 1] < minY) minY = Math.round(p[v3 + 1]);
 
 		return minY;
 
@@ -482,14 +532,17 @@ public class Pipeline {
 	 * points of the polygon, adding them to the EdgeList object
 	 *
 	 * @param eL
-	 * @param a
-	 * @param b
+	 * @param p the vertices array
+	 * @param a the offset of the first vertex
+	 * @param b the offset of the second vertex
+	 * @param cA which corner of the polygon the first vertex is
+	 * @param cB which corner of the polygon the second vertex is
 	 */
-	private static void addToEdgeList(EdgeList eL, Vector3D a, Vector3D b) {
+	private static void addToEdgeList(EdgeList eL, float[] p, int a, int b, int cA, int cB) {
 
 		// Kyle Mans helped with this part here, realising all these values needed to be rounded
-		float aX = Math.round(a.x), aY = Math.round(a.y), aZ = Math.round(a.z),
-		      bX = Math.round(b.x), bY = Math.round(b.y), bZ = Math.round(b.z);
+		float aX = Math.round(p[a]), aY = Math.round(p[a + 1]), aZ = Math.round(p[a + 2]),
+		      bX = Math.round(p[b]), bY = Math.round(p[b + 1]), bZ = Math.round(p[b + 2]);
 
 		// gets the x, y, and z values calculated with or incremented by the slope values below
 		// although the slides don't say to round these, doing this got rid of whiskers
@@ -500,14 +553,20 @@ public class Pipeline {
 		float slopeX = (bX-aX) / (bY-aY),
 			  slopeZ = (bZ-aZ) / (bY-aY);
 
+		// any other attributes (like the colour for smooth shading) are blended between the corners
+		int attributes = eL.getAttributes();
+
 		// this was copied from the slides
 		if (aY < bY) {
 
-			// counts along the left side
-			while (yVal <= bY) {
+			// counts along the left side, stopping after the last row being kept
+			int lastY = (int) Math.min(bY, eL.getEndY());
+			while (yVal <= lastY) {
 
 				// sets both the left variables at the same time
 				eL.setLefts(yVal,xVal,zVal);
+				for (int k = EdgeList.Z + 1; k < attributes; k++)
+					eL.setLeft(yVal, k, blend(eL.getCorner(cA, k), eL.getCorner(cB, k), (yVal-aY) / (bY-aY)));
 
 				// increments x and z by their slope values, and increments y by 1
 				xVal += slopeX;
@@ -517,11 +576,14 @@ public class Pipeline {
 			}
 		} else {
 
-			// counts along the right side
-			while (yVal >= bY) {
+			// counts along the right side, stopping after the first row being kept
+			int firstY = (int) Math.max(bY, eL.getStartY());
+			while (yVal >= firstY) {
 
 				// sets both the right variables at the same time
 				eL.setRights(yVal,xVal,zVal);
+				for (int k = EdgeList.Z + 1; k < attributes; k++)
+					eL.setRight(yVal, k, blend(eL.getCorner(cA, k), eL.getCorner(cB, k), aY == bY ? 0 : (yVal-aY) / (bY-aY)));
 
 				// increments x and z by their slope values, and increments y by 1
 				xVal -= slopeX;
@@ -533,6 +595,13 @@ public class Pipeline {
 
 	}
 
+	/**
+	 * Returns the value a fraction t of the way from a to b
+	 */
+	private static float blend(float a, float b, float t) {
+		return a + (b - a) * t;
+	}
+
 	/**
 	 * Fills a zbuffer with the contents of a single edge list according to the
 	 * lecture slides.
@@ -591,6 +660,153 @@ public class Pipeline {
 		}
 	}
 
+	/**
+	 * The same as the method above, but writes the packed rgb colour of the polygon
+	 * straight into a FrameBuffer rather than storing a Color object per pixel, and
+	 * keeps the depths in a flat DepthBuffer.
+	 *
+	 * @param frameBuffer
+	 *            The framebuffer holding the packed colour at each pixel so far.
+	 * @param depthBuffer
+	 *            The depth buffer storing the z-value of each pixel that has
+	 *            been coloured in so far.
+	 * @param polyEdgeList
+	 *            The edgelist of the polygon to add into the framebuffer.
+	 * @param polyColor
+	 *            The packed rgb colour of the polygon.
+	 */
+	public static void computeZBuffer(FrameBuffer frameBuffer, DepthBuffer depthBuffer, EdgeList polyEdgeList, int polyColor) {
+		computeZBuffer(frameBuffer, depthBuffer, polyEdgeList, polyColor, 0, 0, frameBuffer.getWidth(), frameBuffer.getHeight());
+	}
+
+	/**
+	 * The same as the method above, but only draws the part of the polygon inside of
+	 * the given rectangle. This lets separate threads draw separate parts of the
+	 * screen at the same time without touching each other's pixels.
+	 *
+	 * The z of each pixel is worked out from the start of the scanline rather than
+	 * added up pixel by pixel, so a polygon split across several rectangles gets
+	 * exactly the same depths as it would if it were drawn in one go.
+	 *
+	 * @param minX the left edge of the rectangle (inclusive)
+	 * @param minY the top edge of the rectangle (inclusive)
+	 * @param maxX the right edge of the rectangle (exclusive)
+	 * @param maxY the bottom edge of the rectangle (exclusive)
+	 */
+	public static void computeZBuffer(FrameBuffer frameBuffer, DepthBuffer depthBuffer, EdgeList polyEdgeList, int polyColor,
+									  int minX, int minY, int maxX, int maxY) {
+		computeZBuffer(frameBuffer, depthBuffer, polyEdgeList, polyColor, minX, minY, maxX, maxY, SpanKernel.SCALAR);
+	}
+
+	/**
+	 * The same as the method above, but fills in each scanline with the given kernel
+	 *
+	 * @param kernel fills in the pixels of each scanline, SpanKernel.SCALAR or SpanKernel.vector()
+	 */
+	public static void computeZBuffer(FrameBuffer frameBuffer, DepthBuffer depthBuffer, EdgeList polyEdgeList, int polyColor,
+									  int minX, int minY, int maxX, int maxY, SpanKernel kernel) {
+		computeZBuffer(frameBuffer.getPixels(), depthBuffer.getDepths(), frameBuffer.getWidth(), polyEdgeList, polyColor,
+				minX, minY, maxX, maxY, kernel);
+	}
+
+	/**
+	 * The same as the method above, but writes the value into any int array laid out
+	 * like the framebuffer. Deferred shading uses this to write the index of the
+	 * polygon into each pixel rather than its colour.
+	 *
+	 * @param pixels the values of each pixel so far, indexed by y*width + x
+	 * @param depths the depths of each pixel so far, in the same layout
+	 * @param width the width of the screen
+	 * @param value what is written into each pixel the polygon covers
+	 */
+	public static void computeZBuffer(int[] pixels, float[] depths, int width, EdgeList polyEdgeList, int value,
+									  int minX, int minY, int maxX, int maxY, SpanKernel kernel) {
+
+		// does a check to make sure the y value stays inside the rectangle
+		int startY = Math.max(minY, polyEdgeList.getStartY());
+		int endY = Math.min(maxY, polyEdgeList.getEndY());
+
+		for (int y = startY; y < endY; y++) {
+
+			// gets all the left and right values, saves them to these variables for cleanliness
+			float xL = polyEdgeList.getLeftX(y), zL = polyEdgeList.getLeftZ(y),
+				  xR = polyEdgeList.getRightX(y), zR = polyEdgeList.getRightZ(y);
+
+			// calculates the slope based on these values
+			float slope = (zR - zL)/(xR - xL);
+
+			// where the scanline would start on screen, and the z value there
+			int spanX = Math.max(0, Math.round(xL));
+			float spanZ = Math.round(zL) + slope*(spanX-xL);
+
+			// does a check to make sure the x value stays inside the rectangle
+			int startX = Math.max(minX, spanX);
+			int endX = Math.min(maxX, Math.round(xR));
+
+			// the framebuffer and depth buffer share the same layout, so one index works for both
+			int row = y * width;
+
+			if (polyEdgeList.isSmooth()) {
+
+				// blends the colour across the span the same way as z, from the start of the scanline
+				float rL = polyEdgeList.getLeftColour(y, 0), gL = polyEdgeList.getLeftColour(y, 1), bL = polyEdgeList.getLeftColour(y, 2);
+				float dr = (polyEdgeList.getRightColour(y, 0) - rL)/(xR - xL),
+					  dg = (polyEdgeList.getRightColour(y, 1) - gL)/(xR - xL),
+					  db = (polyEdgeList.getRightColour(y, 2) - bL)/(xR - xL);
+
+				kernel.fillSmooth(pixels, depths, row, startX, endX, spanX, spanZ, slope,
+						rL + dr*(spanX-xL), gL + dg*(spanX-xL), bL + db*(spanX-xL), dr, dg, db);
+
+			} else {
+				kernel.fill(pixels, depths, row, startX, endX, spanX, spanZ, slope, value);
+			}
+
+		}
+	}
+
+	/**
+	 * Returns a depth no further away than any pixel computeZBuffer could give the polygon,
+	 * for throwing it away when everything it covers is already closer. This only needs the
+	 * mesh, so a polygon that gets thrown away never has its edge list made.
+	 *
+	 * The edge list is made from the corners rounded to whole numbers, so every left and right
+	 * side lies on the plane through the rounded corners, which is closest at one of them. But
+	 * each span starts at its left x rounded to the nearest pixel, up to half a pixel before
+	 * the side, and its left z is rounded again, so the depth can go past the plane by half a
+	 * pixel's slope plus a half. The sides are added up in floats one row at a time, which can
+	 * be off by a few units in the last place per row, so a bit more is taken off for that.
+	 *
+	 * @param mesh
+	 * @param tri the index of the triangle in the mesh
+	 * @param width the width of the screen
+	 * @param height the height of the screen
+	 * @return the closest depth, or negative infinity if the rounded corners are in a line,
+	 *         since then the spans could come out at any depth
+	 */
+	public static float getNearestDepth(MeshBuffer mesh, int tri, int width, int height) {
+
+		float[] p = mesh.getVertices();
+		int a = mesh.offset(tri, 0), b = mesh.offset(tri, 1), c = mesh.offset(tri, 2);
+
+		// rounded the same way as addToEdgeList
+		long ax = Math.round(p[a]), ay = Math.round(p[a + 1]), az = Math.round(p[a + 2]),
+			 bx = Math.round(p[b]), by = Math.round(p[b + 1]), bz = Math.round(p[b + 2]),
+			 cx = Math.round(p[c]), cy = Math.round(p[c + 1]), cz = Math.round(p[c + 2]);
+
+		// the z of the plane's normal is twice the area, and its x is how much z changes across
+		long normalZ = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+		if (normalZ == 0) return Float.NEGATIVE_INFINITY;
+		double normalX = (double) (by - ay) * (cz - az) - (double) (bz - az) * (cy - ay);
+		double slope = Math.abs(normalX / normalZ);
+
+		double nearest = Math.min(az, Math.min(bz, cz)) - 0.5 - 0.5 * slope;
+
+		// the rounding from adding up each side, which grows with the number of rows
+		double biggest = Math.max(Math.abs(az), Math.max(Math.abs(bz), Math.abs(cz))) + slope * width;
+		return (float) (nearest - biggest * height * 0x1p-20);
+
+	}
+
 	/**
 	 * Removes all the small holes that will occur between the polygons
 	 * and fills them in with the colour and zdepth of the pixel above it
@@ -632,6 +848,62 @@ public class Pipeline {
 
 	}
 
+	/**
+	 * The same as the method above, but patches the holes in a FrameBuffer and DepthBuffer
+	 * @param frameBuffer
+	 * @param depthBuffer
+	 */
+	public static void removeHoles(FrameBuffer frameBuffer, DepthBuffer depthBuffer) {
+		removeHoles(frameBuffer.getPixels(), depthBuffer.getDepths(), frameBuffer.getWidth(), frameBuffer.getHeight());
+	}
+
+	/**
+	 * The same as the method above, for any int array laid out like the framebuffer,
+	 * such as the polygon indices written by deferred shading
+	 * @param pixels
+	 * @param depths
+	 * @param width
+	 * @param height
+	 */
+	public static void removeHoles(int[] pixels, float[] depths, int width, int height) {
+
+		// iterates through all the x and y positions on screen
+		for (int y = 1; y < height-1; y++) {
+
+			int row = y * width;
+
+			for (int x = 1; x < width-1; x++) {
+
+				int i = row + x;
+
+				// if there is a hole
+				if (depths[i] == Float.POSITIVE_INFINITY) {
+					//  if there are values filled in above and below it
+					if (depths[i - width] < Float.POSITIVE_INFINITY &&
+						depths[i + width] < Float.POSITIVE_INFINITY) {
+
+						// replaces the hole with the colour and zdepth of the pixel above it
+						pixels[i] = pixels[i - width];
+						depths[i] = depths[i - width];
+
+					}
+					// else if there are values filled in to its sides
+					else if (depths[i - 1] < Float.POSITIVE_INFINITY &&
+							 depths[i + 1] < Float.POSITIVE_INFINITY) {
+
+						// replaces the hole with the colour and zdepth of the pixel to the left of it
+						pixels[i] = pixels[i - 1];
+						depths[i] = depths[i - 1];
+					}
+
+				}
+
+			}
+
+		}
+
+	}
+
 }
 
 // code for comp261 assignments
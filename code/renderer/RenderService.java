@@ -0,0 +1,386 @@
+package renderer;
+
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long running render server, so frames can be rendered one after another
+ * without starting a new JVM (and warming it up again) for each one.
+ *
+ * Jobs are read a line at a time, from stdin or from connections to a local
+ * socket, and each one is answered with a line once its frame is written:
+ * <pre>
+ * render scene output [rotate x,y] [ambient r,g,b] [light x,y,z,r,g,b]...
+ *     draws the scene rotated by x and y radians, and writes it to output
+ *     (png, ppm or anything ImageIO can write, by the extension). Any lights
+ *     given replace the scene's own lights. Answered with
+ *     "ok id output milliseconds" or "error id message"
+ * quit
+ *     finishes the jobs already read, then closes the connection
+ * </pre>
+ * The scene is the path of a scene file. Each scene is loaded and scaled the
+ * first time a job asks for it, and kept in memory for every job after.
+ *
+ * Jobs run on a fixed number of worker threads. When every worker is busy and
+ * the queue is full, reading stops until a job finishes, so a client sending
+ * jobs faster than they can be drawn is slowed down rather than filling memory.
+ */
+public class RenderService {
+
+	/** The default number of jobs that can wait for a worker */
+	public static final int DEFAULT_QUEUE_SIZE = 64;
+
+	private final ExecutorService workers;
+	private final Semaphore slots;			// one permit for each job that can be running or waiting
+	private final boolean tiled;
+
+	// the scenes loaded so far, by path. A scene being loaded is a future the other jobs wait on
+	private final Map<String, Future<Scene>> scenes = new ConcurrentHashMap<>();
+
+	// each worker draws with its own renderer and its own copy of the vertices, so they never share buffers
+	private final ThreadLocal<Worker> worker;
+
+	private final AtomicInteger nextId = new AtomicInteger();
+
+	/**
+	 * Constructs a RenderService
+	 *
+	 * @param threads the number of worker threads
+	 * @param queueSize how many jobs can wait for a worker before reading is held up
+	 * @param tiled whether each frame is drawn as tiles in parallel
+	 */
+	public RenderService(int threads, int queueSize, boolean tiled) {
+		if (threads <= 0 || queueSize < 0)
+			throw new IllegalArgumentException("RenderService: needs at least one thread and a queue of at least 0, was "
+					+ threads + " and " + queueSize);
+
+		this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+		this.slots = new Semaphore(threads + queueSize);
+		this.tiled = tiled;
+		this.worker = ThreadLocal.withInitial(Worker::new);
+	}
+
+	/**
+	 * A single frame to render
+	 */
+	public static class Job {
+
+		public final String scene, output;
+		public final float xRot, yRot;
+		public final Color ambientLight;
+		public final Map<Vector3D, Color> lights;	// null to use the scene's own lights
+
+		public Job(String scene, String output, float xRot, float yRot, Color ambientLight, Map<Vector3D, Color> lights) {
+			this.scene = scene;
+			this.output = output;
+			this.xRot = xRot;
+			this.yRot = yRot;
+			this.ambientLight = ambientLight;
+			this.lights = lights;
+		}
+
+		/**
+		 * Reads a job from a render line, see the class comment for the format
+		 *
+		 * @throws IllegalArgumentException if the line isn't a valid render line
+		 */
+		public static Job parse(String line) {
+
+			String[] words = line.trim().split("\\s+");
+			if (words.length < 3 || !words[0].equals("render"))
+				throw new IllegalArgumentException("expected render scene output [options]");
+
+			float xRot = 0, yRot = 0;
+			Color ambient = BatchRenderer.DEFAULT_AMBIENT;
+			Map<Vector3D, Color> lights = null;
+
+			for (int i = 3; i < words.length; i++) {
+				if (i + 1 >= words.length) throw new IllegalArgumentException(words[i] + " needs a value");
+				float[] v = floats(words[i + 1]);
+				switch (words[i++]) {
+				case "rotate":
+					if (v.length != 2) throw new IllegalArgumentException("rotate needs x,y");
+					xRot = v[0];
+					yRot = v[1];
+					break;
+				case "ambient":
+					if (v.length != 3) throw new IllegalArgumentException("ambient needs r,g,b");
+					ambient = new Color((int) v[0], (int) v[1], (int) v[2]);
+					break;
+				case "light":
+					if (v.length != 6) throw new IllegalArgumentException("light needs x,y,z,r,g,b");
+					if (lights == null) lights = new LinkedHashMap<>();
+					lights.put(new Vector3D(v[0], v[1], v[2]), new Color((int) v[3], (int) v[4], (int) v[5]));
+					break;
+				default:
+					throw new IllegalArgumentException("unknown option " + words[i - 1]);
+				}
+			}
+
+			return new Job(words[1], words[2], xRot, yRot, ambient, lights);
+
+		}
+
+		private static float[] floats(String s) {
+			String[] parts = s.split(",");
+			float[] v = new float[parts.length];
+			for (int i = 0; i < parts.length; i++)
+				v[i] = Float.parseFloat(parts[i]);
+			return v;
+		}
+	}
+
+	/**
+	 * What each worker thread keeps between jobs
+	 */
+	private class Worker {
+
+		final SceneRenderer sceneRenderer = new SceneRenderer(GUI.CANVAS_WIDTH, GUI.CANVAS_HEIGHT);
+
+		// the worker's own scene over the model of each cached scene it has drawn. Each shares the model
+		// with its cached scene, but has its own transform and view, so rotating it doesn't affect any
+		// other job. Cached scenes are kept for the life of the service, so this never grows past them
+		final Map<Scene, Scene> frames = new IdentityHashMap<>();
+
+		Worker() {
+			sceneRenderer.setTiled(tiled);
+		}
+
+		/**
+		 * Draws a job and writes it out
+		 */
+		void render(Scene scene, Job job) throws IOException {
+
+			Scene frame = frames.computeIfAbsent(scene, s -> Scene.fromMesh(s.getModel(), null));
+
+			// starts from the cached scene's transform, and a copy of the lights since rotating replaces them
+			frame.setTransform(scene.getTransform());
+			frame.setLights(new LinkedHashMap<>(job.lights != null ? job.lights : scene.getLights()));
+			if (job.xRot != 0 || job.yRot != 0) Pipeline.rotateScene(frame, job.xRot, job.yRot);
+			Pipeline.translateScene(frame);
+
+			sceneRenderer.render(frame, job.ambientLight);
+			FrameWriter.write(sceneRenderer.getFrameBuffer(), new File(job.output));
+
+		}
+	}
+
+	/**
+	 * Returns the scene at the path, loading and scaling it if no job has asked for it yet
+	 */
+	private Scene getScene(String path) throws IOException {
+
+		Future<Scene> future = scenes.get(path);
+		if (future == null) {
+			FutureTask<Scene> load = new FutureTask<>(() ->
+					Pipeline.scaleScene(SceneLoader.load(new File(path), MeshBuffer.DEFAULT_WELD_EPSILON)));
+			future = scenes.putIfAbsent(path, load);
+			if (future == null) {
+				future = load;
+				load.run();
+			}
+		}
+
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			// forgets the failed load, so the next job can try again
+			scenes.remove(path, future);
+			throw new IOException("couldn't load " + path + ": " + describe(e.getCause()), e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while loading " + path, e);
+		}
+
+	}
+
+	/**
+	 * Queues a job, waiting for room in the queue if it is full
+	 *
+	 * @param job the job
+	 * @param out where the answer is written once the job is done
+	 * @return a future that is done once the answer has been written
+	 */
+	public Future<?> submit(Job job, PrintWriter out) throws InterruptedException {
+		return submit(job, out, null);
+	}
+
+	/**
+	 * Queues a job, waiting for room in the queue if it is full
+	 *
+	 * @param pending if not null, is registered with while the job is queued or running
+	 */
+	private Future<?> submit(Job job, PrintWriter out, Phaser pending) throws InterruptedException {
+
+		int id = nextId.getAndIncrement();
+
+		// this is the backpressure, it blocks until a job already queued has finished
+		slots.acquire();
+		if (pending != null) pending.register();
+
+		try {
+			return workers.submit(() -> {
+				try {
+					long start = System.nanoTime();
+					worker.get().render(getScene(job.scene), job);
+					answer(out, String.format("ok %d %s %.2f", id, job.output, (System.nanoTime() - start) / 1e6));
+				} catch (IOException | RuntimeException e) {
+					answer(out, "error " + id + " " + describe(e));
+				} finally {
+					slots.release();
+					if (pending != null) pending.arriveAndDeregister();
+				}
+			});
+		} catch (RuntimeException e) {
+			slots.release();
+			if (pending != null) pending.arriveAndDeregister();
+			throw e;
+		}
+
+	}
+
+	/**
+	 * Returns the message of an exception for an error answer, or its name if it has no message
+	 * (a NullPointerException usually doesn't)
+	 */
+	private static String describe(Throwable e) {
+		return e.getMessage() != null ? e.getMessage() : e.toString();
+	}
+
+	/**
+	 * Writes a line of answer. Jobs finish on different threads, so this keeps their lines from mixing
+	 */
+	private static void answer(PrintWriter out, String line) {
+		synchronized (out) {
+			out.println(line);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Reads jobs from a client until it quits or the input ends, then waits for
+	 * all of its jobs to finish before returning
+	 *
+	 * @param in the jobs, one per line
+	 * @param out the answers, one per line
+	 */
+	public void serve(Reader in, Writer out) throws IOException, InterruptedException {
+
+		BufferedReader reader = new BufferedReader(in);
+		PrintWriter writer = new PrintWriter(out);
+
+		// keeps track of this client's jobs, so they can be waited for at the end
+		Phaser pending = new Phaser(1);
+
+		String line;
+		while ((line = reader.readLine()) != null) {
+
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+			if (line.equals("quit")) break;
+
+			try {
+				submit(Job.parse(line), writer, pending);
+			} catch (IllegalArgumentException e) {
+				answer(writer, "error " + nextId.getAndIncrement() + " " + describe(e));
+			}
+
+		}
+
+		// waits for every job this client sent to be answered
+		pending.awaitAdvanceInterruptibly(pending.arrive());
+
+	}
+
+	/**
+	 * Accepts connections on a local port, serving each one on its own thread. Never returns.
+	 *
+	 * @param port the port to listen on, on the loopback address only
+	 */
+	public void listen(int port) throws IOException {
+		try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			System.err.println("render service listening on " + server.getLocalSocketAddress());
+			while (true) {
+				Socket socket = server.accept();
+				Thread client = new Thread(() -> {
+					try (Socket s = socket) {
+						serve(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8),
+							  new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8));
+					} catch (IOException | InterruptedException e) {
+						System.err.println("connection from " + socket.getRemoteSocketAddress() + " ended: " + e);
+					}
+				});
+				client.setDaemon(true);
+				client.start();
+			}
+		}
+	}
+
+	/**
+	 * Stops the worker threads once the jobs already queued are done
+	 */
+	public void shutdown() {
+		workers.shutdown();
+	}
+
+	/**
+	 * Usage: RenderService [--port n] [--threads n] [--queue n] [--tiled]
+	 * With no port, jobs are read from stdin and answered on stdout.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		// makes sure nothing tries to open a window
+		System.setProperty("java.awt.headless", "true");
+
+		int port = -1, threads = Runtime.getRuntime().availableProcessors(), queue = DEFAULT_QUEUE_SIZE;
+		boolean tiled = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--port")) port = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--threads")) threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--queue")) queue = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--tiled")) tiled = true;
+			else {
+				System.out.println("Usage: RenderService [--port n] [--threads n] [--queue n] [--tiled]");
+				return;
+			}
+		}
+
+		RenderService service = new RenderService(threads, queue, tiled);
+		if (port >= 0) {
+			service.listen(port);
+		} else {
+			service.serve(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+						  new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+			service.shutdown();
+		}
+
+	}
+
+}
+
+// code for comp261 assignments
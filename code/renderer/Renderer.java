@@ -3,13 +3,12 @@ package renderer;
 import java.awt.Color;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.channels.Pipe;
 import java.util.*;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
 
 public class Renderer extends GUI {
 
@@ -17,6 +16,14 @@ public class Renderer extends GUI {
 	public final float factor = (float) (0.02*Math.PI);
 	private boolean scaled = false;
 
+	// how close two corners have to be on load to be welded into a single vertex
+	public float weldEpsilon = MeshBuffer.DEFAULT_WELD_EPSILON;
+
+	// does the actual drawing, and keeps the framebuffer and depth buffer between frames
+	private final SceneRenderer sceneRenderer = new SceneRenderer(CANVAS_WIDTH, CANVAS_HEIGHT);
+	// the last frame, which is reused when the window is repainted but nothing in the scene has changed
+	private final FrameCache frameCache = new FrameCache();
+
 	@Override
 	protected void onLoad(File file) {
 		// TODO fill this in.
@@ -30,92 +37,15 @@ public class Renderer extends GUI {
 		 */
 		try{
 
-			// Declares the list of Polygons and the map of Lights, is a linkedHashMap so it is order by insertion
-			ArrayList<Scene.Polygon> polygonList = new ArrayList<>();
-			Map<Vector3D, Color> lightList = new LinkedHashMap<>();
-
-			BufferedReader br = new BufferedReader(new FileReader(file));
-			String line; String[] splitLine; // a variable for the line and split line is used to read and separate the data, respectively
-
-			// since the number of polygons is on one line by itself, turns that line into an integer
-			int numOfTris = strToInt(br.readLine());
-
-			for (int i = 0; i < numOfTris; i++) {
-
-				line = br.readLine();
-				splitLine = line.split(","); // uses a , as a delimiter to read the data in its distinct columns
-
-				// the colours in the txt files are split by the first three integers
-				int cols[] = strsToInts(splitLine[0],splitLine[1],splitLine[2]);
-
-				float[] coords = new float[9];
-				for (int j = 0; j < 3; j++) {
-					coords[j*3] = strToFloat(splitLine[j*3+3]);		// gets 0, 3, and 6 from splitLine values 3, 6 and 9
-					coords[j*3+1] = strToFloat(splitLine[j*3+4]);	// gets 1, 4, and 7 from splitLine values 4, 7 and 10
-					coords[j*3+2] = strToFloat(splitLine[j*3+5]);	// gets 2, 5, and 8 from splitLine values 5, 8 and 11
-				}
-
-				polygonList.add(new Scene.Polygon(coords,cols));
-
-			}
-
-			// repeats this as it has to read the last line of the document
-			line = br.readLine();
-			splitLine = line.split(","); // uses a , as a delimiter to read the data in its distinct columns
-
-			// grabs the light vector that the file has by default, with an initial colour of white
-			float[] vect = strsToFloats(splitLine[0],splitLine[1],splitLine[2]);
-			Color color = new Color(255,255,255);
-
-			lightList.put(new Vector3D(vect[0],vect[1],vect[2]), color);
-
-			br.close();
-
-			// initialises the scene here that is referenced to throughout the render class
-			scene = new Scene(polygonList, lightList);
+			// reads either a text or binary scene file, depending on the file extension.
+			// big text files are split up and parsed in parallel
+			scene = SceneLoader.load(file, weldEpsilon, ForkJoinPool.commonPool());
 
 		} catch(IOException e){
 			System.out.println("File for polygons was unable to be read properly.");
 		}
 	}
 
-	/**
-	 * Takes a String and returns it as an integer.
-	 */
-	private static int strToInt(String s) {
-		return Integer.parseInt(s);
-	}
-
-	/**
-	 * Takes a String and returns it as a float.
-	 */
-	private static float strToFloat(String s) {
-		return Float.parseFloat(s);
-	}
-
-	/**
-	 * Takes three Strings (x, y, z) and returns them as a float array
-	 * Used primarily for making Vector3D Objects, and calls the strToFloat class too
-	 * @param x is the x coord
-	 * @param y is the y coord
-	 * @param z is the z coord
-	 */
-	private static float[] strsToFloats(String x, String y, String z) {
-		return new float[]{strToFloat(x),strToFloat(y),strToFloat(z)};
-	}
-
-
-	/**
-	 * Takes three Strings (r, g, b) and returns them as an integer array
-	 * Used primarily for making Color objects, and calls the strToInt class too
-	 * @param r
-	 * @param g
-	 * @param b
-	 */
-	private static int[] strsToInts(String r, String g, String b) {
-		return new int[]{strToInt(r),strToInt(g),strToInt(b)};
-	}
-
 	/**
 	 * Method is called upon a KeyEvent being triggered in the GUI class
 	 * Used for rotating the object on screen
@@ -151,6 +81,34 @@ public class Renderer extends GUI {
 				|| Character.toUpperCase(ev.getKeyChar()) == 'W')
 			scene = Pipeline.rotateScene(scene, factor, 0);
 
+		// switches between drawing on one thread and drawing tiles in parallel
+		else if (Character.toUpperCase(ev.getKeyChar()) == 'T')
+			sceneRenderer.setTiled(!sceneRenderer.isTiled());
+
+		// switches between filling scanlines a pixel at a time and with the Vector API
+		else if (Character.toUpperCase(ev.getKeyChar()) == 'V')
+			sceneRenderer.setSpanKernel(sceneRenderer.getSpanKernel() == SpanKernel.SCALAR ? SpanKernel.vector() : SpanKernel.SCALAR);
+
+		// switches deferred shading on and off, which makes changing the lights much quicker
+		else if (Character.toUpperCase(ev.getKeyChar()) == 'G')
+			sceneRenderer.setDeferred(!sceneRenderer.isDeferred());
+
+		// switches between flat and smooth shading, which changes the picture so the last frame can't be reused
+		else if (Character.toUpperCase(ev.getKeyChar()) == 'F') {
+			sceneRenderer.setSmooth(!sceneRenderer.isSmooth());
+			frameCache.clear();
+		}
+
+		// switches between drawing with edge lists and with edge functions, which fill slightly different pixels
+		else if (Character.toUpperCase(ev.getKeyChar()) == 'H') {
+			sceneRenderer.setHalfSpace(!sceneRenderer.isHalfSpace());
+			frameCache.clear();
+		}
+
+		// switches skipping polygons hidden behind ones already drawn on and off
+		else if (Character.toUpperCase(ev.getKeyChar()) == 'O')
+			sceneRenderer.setOcclusionCulling(!sceneRenderer.isOcclusionCulling());
+
 	}
 
 	/**
@@ -164,80 +122,22 @@ public class Renderer extends GUI {
 		// if the scene is null, doesn't need to check anything
 		if (scene == null) return null;
 
-		// Declares the bitmap and zdepth, and initialises them in the array
-		Color[][] bitmap = new Color[CANVAS_WIDTH][CANVAS_HEIGHT];
-		float[][] zdepth = new float[CANVAS_WIDTH][CANVAS_HEIGHT];
-		initArrays(bitmap, zdepth);
-
 		// transforms the scene to the centre in another method
 		transformScene();
 
 		// grabs the ambientLight from the GUI class
 		Color ambLight = new Color(getAmbientLight()[0],getAmbientLight()[1],getAmbientLight()[2]);
 
-		// cycles through all the main checks in the Pipeline class
-		for (Scene.Polygon p : scene.getPolygons()) {
-
-			if (!Pipeline.isHidden(p)) {
-
-				// gets the proper shading colour (I changed the variables that were passed over since I use a LinkedHashMap)
-				Color col = Pipeline.getShading(p,scene.getLights(),ambLight);
-				// declares the edgelist of the polygon being cycled through
-				EdgeList eL = Pipeline.computeEdgeList(p);
-				// computes the zbuffer of said polygon
-				Pipeline.computeZBuffer(bitmap,zdepth,eL,col);
+		// if the scene, the lights and the ambient light are all the same as last time, so is the picture
+		BufferedImage image = frameCache.get(scene, ambLight);
 
-			}
+		// otherwise draws the scene into the framebuffer, whose image is what gets drawn on screen
+		if (image == null) {
+			image = sceneRenderer.render(scene, ambLight);
+			frameCache.put(scene, ambLight, image);
 		}
 
-		// after all the polygons have been drawn, fills in any holes that have not been coloured in the for loop above
-		Pipeline.removeHoles(bitmap,zdepth);
-
-		// converts the Color array into a bitmap
-		return convertBitmapToImage(bitmap);
-
-	}
-
-	/**
-	 * Converts a 2D array of Colors to a BufferedImage. Assumes that bitmap is
-	 * indexed by column then row and has imageHeight rows and imageWidth
-	 * columns. Note that image.setRGB requires x (col) and y (row) are given in
-	 * that order.
-	 */
-	private BufferedImage convertBitmapToImage(Color[][] bitmap) {
-		BufferedImage image = new BufferedImage(CANVAS_WIDTH, CANVAS_HEIGHT, BufferedImage.TYPE_INT_RGB);
-		for (int x = 0; x < CANVAS_WIDTH; x++) {
-			for (int y = 0; y < CANVAS_HEIGHT; y++) {
-				image.setRGB(x, y, bitmap[x][y].getRGB());
-			}
-		}
 		return image;
-	}
-
-	/**
-	 * Initialises the 2D Arrays used for the bitmap and zdepth
-	 * Created purely for a cleaner looking method
-	 *
-	 * @param bitmap the Color[][] array used for the bitmap render
-	 * @param zdepth the float[][] array used for the zdepth of the polygons
-	 */
-	private void initArrays(Color[][] bitmap, float[][]zdepth) {
-
-		// this for loop initialises all the values in the bitmap array and zdepth
-		for (int i = 0; i < CANVAS_HEIGHT; i++) {
-			for (int j = 0; j < CANVAS_WIDTH; j++) {
-
-				// creates a grid pattern from the background
-				// if a polygon doesn't cover that pixel, it will remain this colour
-				if (i % 120 == 0 || j % 120 == 0) bitmap[i][j] = Color.WHITE;
-				else bitmap[i][j] = Color.DARK_GRAY;
-
-				// by default, the zdepth should be positive infinity
-				// (the furthest back that a polygon could go)
-				zdepth[i][j] = Float.POSITIVE_INFINITY;
-
-			}
-		}
 
 	}
 
@@ -15,19 +15,250 @@ import java.util.*;
  */
 public class Scene {
 
-	// Collections to store the polygons and lights
+	// The model stores the actual polygon data as it was loaded, and is never changed by the pipeline.
+	// Moving the scene around only changes the transform, and the view is the model with the transform
+	// applied, which is worked out again (in a single pass) the first time it's needed after the transform changes
+	private MeshBuffer model;
+	private Transform transform;	// null is the same as the identity, where the view is just the model
+	private MeshBuffer view;		// made the first time there is a transform, then reused
+	private boolean viewChanged;	// whether the transform has changed since the view was worked out
+
+	// the bounding boxes of the model and the view, as min x, y, z then max x, y, z. The model's is found
+	// the first time it's needed, and the view's is the box around the model's 8 corners once transformed
+	private float[] modelBounds;
+	private final float[] viewBounds = new float[6];
+	private boolean boundsChanged;	// whether the transform has changed since the view's box was worked out
 	private List<Polygon> polygonList;
 	private Map<Vector3D, Color> lightList;
 
+	// go up by one every time the model, the transform or the lights change, so something that drew
+	// the scene can tell whether what it drew is still the same without comparing the scene itself
+	private int modelVersion, transformVersion, lightVersion;
+
+	// the lights packed into arrays for shading, remade the first time they're asked for after the lights change
+	private LightArray lightArray;
+	private int lightArrayVersion;
+
 	/**
 	 * Default constructor of a scene
+	 * The polygons are copied into a MeshBuffer, and are then changed to point at it,
+	 * so editing the scene also edits the polygons that were passed in
 	 * @param polygons
 	 * @param lights
 	 */
 	public Scene(List<Polygon> polygons, Map<Vector3D, Color> lights) {
           // TODO fill this in.
-		this.polygonList = polygons;
+		int size = polygons == null ? 0 : polygons.size();
+		MeshBuffer mesh = new MeshBuffer(size);
+
+		for (int i = 0; i < size; i++) {
+			Polygon p = polygons.get(i);
+			for (int corner = 0; corner < 3; corner++) {
+				int o = p.mesh.offset(p.index, corner);
+				float[] v = p.mesh.getVertices();
+				mesh.setVertex(i, corner, v[o], v[o + 1], v[o + 2]);
+			}
+			mesh.getColours()[i] = p.mesh.getColours()[p.index];
+			p.mesh = mesh;
+			p.index = i;
+		}
+
+		init(mesh, lights);
+	}
+
+	/**
+	 * Constructs a scene straight from a MeshBuffer, without any Polygon objects
+	 * @param mesh
+	 * @param lights
+	 */
+	public static Scene fromMesh(MeshBuffer mesh, Map<Vector3D, Color> lights) {
+		Scene scene = new Scene(null, null);
+		scene.init(mesh, lights);
+		return scene;
+	}
+
+	/**
+	 * Sets the mesh and lights, and makes the polygon view over the mesh
+	 */
+	private void init(MeshBuffer mesh, Map<Vector3D, Color> lights) {
+		this.model = mesh;
 		this.lightList = lights;
+
+		// polygons are only made when they're asked for, so no objects are kept per triangle
+		this.polygonList = new AbstractList<Polygon>() {
+			public Polygon get(int i) {
+				if (i < 0 || i >= model.getTriangleCount()) throw new IndexOutOfBoundsException("Polygon: " + i);
+				return new Polygon(getMesh(), i);
+			}
+
+			public int size() {
+				return model.getTriangleCount();
+			}
+		};
+	}
+
+	/**
+	 * Returns the mesh as it is on screen, which is the model with the transform applied
+	 * @return
+	 */
+	public MeshBuffer getMesh() {
+
+		if (transform == null) return model;
+
+		// the view shares the indices and colours with the model, which are never changed, but has its own vertices
+		if (view == null) {
+			view = new MeshBuffer(new float[model.getVertices().length], model.getIndices(), model.getColours());
+			viewChanged = true;
+		}
+
+		if (viewChanged) {
+			transform.multiply(model.getVertices(), view.getVertices(), model.getVertexCount());
+			// the normals are just the model's turned by the transform, rather than worked out from the view again
+			view.transformNormals(model, transform);
+			viewChanged = false;
+		}
+
+		return view;
+
+	}
+
+	/**
+	 * Returns the mesh as it was loaded, before any transform
+	 * @return
+	 */
+	public MeshBuffer getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns the transform from the model to the screen
+	 * @return
+	 */
+	public Transform getTransform() {
+		return transform == null ? Transform.identity() : transform;
+	}
+
+	/**
+	 * Sets the transform from the model to the screen. The model isn't changed,
+	 * the view is just worked out again next time it's asked for
+	 * @param transform
+	 */
+	public void setTransform(Transform transform) {
+		this.transform = transform;
+		this.viewChanged = true;
+		this.boundsChanged = true;
+		this.transformVersion++;
+	}
+
+	/**
+	 * Should be called after changing the model's vertices or colours in place, so the
+	 * view, the bounding box and anything drawn from the scene are all worked out again
+	 */
+	public void modelChanged() {
+		this.model.verticesChanged();
+		this.modelBounds = null;
+		this.viewChanged = true;
+		this.boundsChanged = true;
+		this.modelVersion++;
+	}
+
+	/**
+	 * Returns how many times the model has been changed, see modelChanged
+	 * @return
+	 */
+	public int getModelVersion() {
+		return modelVersion;
+	}
+
+	/**
+	 * Returns how many times the transform has been changed, which is every rotation, scale or translation
+	 * @return
+	 */
+	public int getTransformVersion() {
+		return transformVersion;
+	}
+
+	/**
+	 * Returns how many times the lights have been changed through the methods of this class. Changing
+	 * the map from getLights directly isn't counted
+	 * @return
+	 */
+	public int getLightVersion() {
+		return lightVersion;
+	}
+
+	/**
+	 * Returns the box around the scene as it is on screen, as min x, y, z then max x, y, z.
+	 * The model's box is only worked out once, after that this just transforms its 8 corners,
+	 * so it is quick to call every frame. Once the scene is rotated the box can be a little
+	 * bigger than the view itself, but its centre is always the centre of the model's box
+	 * @return
+	 */
+	public float[] getBounds() {
+
+		if (modelBounds == null) {
+			float[] b = { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+						  Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
+			float[] positions = model.getVertices();
+			for (int o = 0; o < positions.length; o += 3) {
+				for (int axis = 0; axis < 3; axis++) {
+					b[axis] = Math.min(b[axis], positions[o + axis]);
+					b[axis + 3] = Math.max(b[axis + 3], positions[o + axis]);
+				}
+			}
+			modelBounds = b;
+		}
+
+		// an empty model has no corners to transform
+		if (transform == null || model.getVertexCount() == 0) return modelBounds;
+
+		if (boundsChanged) {
+
+			// each corner takes either the min or max on each axis, picked by the bits of c
+			float[] corners = new float[24];
+			for (int c = 0; c < 8; c++)
+				for (int axis = 0; axis < 3; axis++)
+					corners[c * 3 + axis] = modelBounds[axis + ((c >> axis) & 1) * 3];
+			transform.multiply(corners, corners, 8);
+
+			for (int axis = 0; axis < 3; axis++) {
+				viewBounds[axis] = Float.POSITIVE_INFINITY;
+				viewBounds[axis + 3] = Float.NEGATIVE_INFINITY;
+				for (int c = 0; c < 8; c++) {
+					viewBounds[axis] = Math.min(viewBounds[axis], corners[c * 3 + axis]);
+					viewBounds[axis + 3] = Math.max(viewBounds[axis + 3], corners[c * 3 + axis]);
+				}
+			}
+
+			boundsChanged = false;
+
+		}
+
+		return viewBounds;
+
+	}
+
+	/**
+	 * Moves the scene across the screen. This is the same as putting a
+	 * translation in front of the transform, but if the view is already up to
+	 * date it's moved where it is rather than being worked out again from the model
+	 * @param dx
+	 * @param dy
+	 */
+	public void translateView(float dx, float dy) {
+
+		boolean upToDate = transform != null && view != null && !viewChanged;
+		setTransform(Transform.newTranslation(dx, dy, 0f).compose(getTransform()));
+
+		if (upToDate) {
+			float[] positions = view.getVertices();
+			for (int o = 0; o < positions.length; o += 3) {
+				positions[o] += dx;
+				positions[o + 1] += dy;
+			}
+			viewChanged = false;
+		}
+
 	}
 
 	/**
@@ -40,7 +271,20 @@ public class Scene {
 	}
 
 	/**
-	 * Returns the polygons
+	 * Returns the lights packed into arrays, which is what shading reads. These are only packed
+	 * again after the lights are changed through this class, like getLightVersion
+	 * @return
+	 */
+	public LightArray getLightArray() {
+		if (lightArray == null || lightArrayVersion != lightVersion) {
+			lightArray = new LightArray(lightList);
+			lightArrayVersion = lightVersion;
+		}
+		return lightArray;
+	}
+
+	/**
+	 * Returns the polygons, as a read-only view over the mesh
 	 * @return
 	 */
 	public List<Polygon> getPolygons() {
@@ -48,11 +292,30 @@ public class Scene {
           return polygonList;
 	}
 
+	/**
+	 * Returns whether getPolygons is the view over this scene's own mesh, which it isn't
+	 * if a subclass hands out polygons of its own
+	 * @return
+	 */
+	boolean ownsPolygons() {
+		return getPolygons() == polygonList;
+	}
+
+	/**
+	 * Replaces the lights
+	 * @param lights
+	 */
+	public void setLights(Map<Vector3D, Color> lights) {
+		this.lightList = lights;
+		this.lightVersion++;
+	}
+
 	/**
 	 * Clears the map of lights
 	 */
 	public void clearLight() {
 		lightList.clear();
+		lightVersion++;
 	}
 
 	/**
@@ -67,6 +330,7 @@ public class Scene {
 
 		// findLast.pop() would be the last light inserted
 		lightList.remove(findLast.pop());
+		lightVersion++;
 	}
 
 	/**
@@ -77,17 +341,20 @@ public class Scene {
 	 */
 	public void addLight(Vector3D v, Color c) {
 		lightList.put(v, c);
+		lightVersion++;
 	}
 
 	/**
 	 * Polygon stores data about a single polygon in a scene, keeping track of
 	 * (at least!) its three vertices and its reflectance.
-         *
-         * This class has been done for you.
+	 *
+	 * The data itself lives in a MeshBuffer, a Polygon is just the mesh and the
+	 * index of the triangle inside of it. A Polygon made with one of the public
+	 * constructors gets a mesh of its own with just the one triangle.
 	 */
 	public static class Polygon {
-		Vector3D[] vertices;
-		Color reflectance;
+		MeshBuffer mesh;
+		int index;
 
 		/**
 		 * @param points
@@ -102,20 +369,8 @@ public class Scene {
 		 *            and 255.
 		 */
 		public Polygon(float[] points, int[] color) {
-			this.vertices = new Vector3D[3];
-
-			float x, y, z;
-			for (int i = 0; i < 3; i++) {
-				x = points[i * 3];
-				y = points[i * 3 + 1];
-				z = points[i * 3 + 2];
-				this.vertices[i] = new Vector3D(x, y, z);
-			}
-
-			int r = color[0];
-			int g = color[1];
-			int b = color[2];
-			this.reflectance = new Color(r, g, b);
+			this.mesh = new MeshBuffer(1);
+			this.mesh.setTriangle(0, points, MeshBuffer.packColour(color[0], color[1], color[2]));
 		}
 
 		/**
@@ -123,30 +378,55 @@ public class Scene {
 		 * and a Color object.
 		 */
 		public Polygon(Vector3D a, Vector3D b, Vector3D c, Color color) {
-			this.vertices = new Vector3D[] { a, b, c };
-			this.reflectance = color;
+			this(new float[] { a.x, a.y, a.z, b.x, b.y, b.z, c.x, c.y, c.z },
+				 new int[] { color.getRed(), color.getGreen(), color.getBlue() });
+		}
+
+		/**
+		 * A view of the given triangle inside of a mesh
+		 */
+		Polygon(MeshBuffer mesh, int index) {
+			this.mesh = mesh;
+			this.index = index;
 		}
 
+		/**
+		 * Returns a copy of the vertices, changing the array won't change the polygon
+		 */
 		public Vector3D[] getVertices() {
-			return vertices;
+			return new Vector3D[] { mesh.getVertex(index, 0), mesh.getVertex(index, 1), mesh.getVertex(index, 2) };
 		}
 
 		public Color getReflectance() {
-			return reflectance;
+			return new Color(mesh.getColours()[index]);
+		}
+
+		/**
+		 * Returns the mesh this polygon is stored in
+		 */
+		public MeshBuffer getMesh() {
+			return mesh;
+		}
+
+		/**
+		 * Returns the index of this polygon inside of its mesh
+		 */
+		public int getIndex() {
+			return index;
 		}
 
 		@Override
 		public String toString() {
 			String str = "polygon:";
 
-			for (Vector3D p : vertices)
+			for (Vector3D p : getVertices())
 				str += "\n  " + p.toString();
 
-			str += "\n  " + reflectance.toString();
+			str += "\n  " + getReflectance().toString();
 
 			return str;
 		}
 	}
 }
 
-// code for COMP261 assignments
+// code for comp261 assignments
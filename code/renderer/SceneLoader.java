@@ -0,0 +1,327 @@
+package renderer;
+
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reads scene files into Scene objects. This used to be part of Renderer's
+ * onLoad, but lives on its own so that scenes can be loaded without a GUI.
+ *
+ * Two formats are understood: the comma separated text format the assignment
+ * files come in, and the binary format written by BinaryScene, which is picked
+ * if the file name ends in BinaryScene.EXTENSION.
+ *
+ * Big text files can also be loaded in parallel, see loadTextParallel.
+ */
+public class SceneLoader {
+
+	/** The default size of the pieces a text file is split into to be parsed in parallel */
+	public static final int DEFAULT_CHUNK_BYTES = 1 << 22;
+
+	// the most bytes read at once while looking for the end of a line
+	private static final int SEARCH_BYTES = 256;
+
+	/**
+	 * Loads a scene in either format, depending on the file extension
+	 *
+	 * @param file the scene file
+	 * @param weldEpsilon how close two corners in a text file have to be to be welded into one vertex
+	 */
+	public static Scene load(File file, float weldEpsilon) throws IOException {
+		if (file.getName().endsWith(BinaryScene.EXTENSION)) return BinaryScene.read(file);
+		else return loadText(file, weldEpsilon);
+	}
+
+	/**
+	 * Loads a scene in either format, depending on the file extension, parsing
+	 * text files in parallel on the given pool
+	 *
+	 * @param file the scene file
+	 * @param weldEpsilon how close two corners in a text file have to be to be welded into one vertex
+	 * @param pool the pool to parse on
+	 */
+	public static Scene load(File file, float weldEpsilon, ForkJoinPool pool) throws IOException {
+		if (file.getName().endsWith(BinaryScene.EXTENSION)) return BinaryScene.read(file);
+		else return loadTextParallel(file, weldEpsilon, pool, DEFAULT_CHUNK_BYTES);
+	}
+
+	/**
+	 * Parses a scene in the text format. The first line is the number of polygons,
+	 * then each polygon is a line of r,g,b followed by the x,y,z of its three
+	 * vertices, and the last line is the x,y,z of the light.
+	 *
+	 * @param file the scene file
+	 * @param weldEpsilon how close two corners have to be to be welded into one vertex
+	 */
+	public static Scene loadText(File file, float weldEpsilon) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			return new SceneParser(in, file.length()).parse(weldEpsilon);
+		}
+	}
+
+	/**
+	 * Parses a scene in the text format in parallel. Since every polygon is on a
+	 * line of its own, the file is split into chunks at the ends of lines, and
+	 * the lines in each chunk are counted so that each chunk knows which
+	 * polygon it starts at. The chunks are then parsed in parallel, each one
+	 * filling in its own range of the arrays, so the scene comes out exactly the
+	 * same as loadText would give. Welding the vertices is still done on one thread.
+	 *
+	 * @param file the scene file
+	 * @param weldEpsilon how close two corners have to be to be welded into one vertex
+	 * @param pool the pool to parse the chunks on
+	 * @param chunkBytes roughly how many bytes each chunk should be
+	 */
+	public static Scene loadTextParallel(File file, float weldEpsilon, ForkJoinPool pool, int chunkBytes) throws IOException {
+
+		if (chunkBytes <= 0)
+			throw new IllegalArgumentException("SceneLoader: chunk size must be positive, was " + chunkBytes);
+
+		// small files aren't worth splitting up
+		if (file.length() <= chunkBytes) return loadText(file, weldEpsilon);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			long size = channel.size();
+
+			// reads the number of polygons, and finds where the first polygon starts
+			SceneParser header = new SceneParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, SEARCH_BYTES)));
+			int numOfTris = header.parseHeader(size);
+			long headerEnd = header.getPosition();
+
+			// splits the rest of the file up at the ends of lines, the chunks are starts[c] up to starts[c+1]
+			int chunks = (int) Math.max(1, (size - headerEnd + chunkBytes - 1) / chunkBytes);
+			long[] starts = new long[chunks + 1];
+			starts[0] = headerEnd;
+			for (int c = 1; c < chunks; c++)
+				starts[c] = Math.max(starts[c - 1], nextLine(channel, headerEnd + (long) c * chunkBytes, size));
+			starts[chunks] = size;
+
+			MappedByteBuffer[] maps = new MappedByteBuffer[chunks];
+			for (int c = 0; c < chunks; c++)
+				maps[c] = channel.map(FileChannel.MapMode.READ_ONLY, starts[c], starts[c + 1] - starts[c]);
+
+			// counts the lines in every chunk, in parallel
+			int[] lines = new int[chunks + 1];
+			invoke(pool, chunks, c -> lines[c + 1] = countLines(maps[c]));
+
+			// turns the counts into the polygon each chunk starts at
+			for (int c = 0; c < chunks; c++)
+				lines[c + 1] += lines[c];
+			if (lines[chunks] < numOfTris + 1)
+				throw new IOException("line " + (lines[chunks] + 2) + ": expected " + numOfTris + " polygons and a light but the file ended");
+
+			float[] positions = new float[numOfTris * 9];
+			int[] colours = new int[numOfTris];
+			Vector3D[] light = new Vector3D[1];
+
+			// parses every chunk in parallel, the chunk with the light line in it parses that too
+			invoke(pool, chunks, c -> {
+				int first = Math.min(lines[c], numOfTris), last = Math.min(lines[c + 1], numOfTris);
+				SceneParser parser = new SceneParser(maps[c], lines[c] + 2);
+				parser.parseTriangles(positions, colours, first, last - first);
+				if (lines[c] <= numOfTris && numOfTris < lines[c + 1])
+					light[0] = parser.parseLight();
+			});
+
+			Map<Vector3D, Color> lightList = new LinkedHashMap<>();
+			lightList.put(light[0], new Color(255, 255, 255));
+
+			return Scene.fromMesh(MeshBuffer.weld(positions, colours, weldEpsilon), lightList);
+
+		}
+
+	}
+
+	/**
+	 * Finds the start of the first line after the given position
+	 *
+	 * @return the position just after the next new line, or the size of the file if there isn't one
+	 */
+	private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SEARCH_BYTES);
+		while (position < size) {
+			buffer.clear();
+			int n = channel.read(buffer, position);
+			if (n <= 0) break;
+			for (int i = 0; i < n; i++)
+				if (buffer.get(i) == '\n') return position + i + 1;
+			position += n;
+		}
+		return size;
+	}
+
+	/**
+	 * Counts the lines in a chunk, where a last line with no new line on the end still counts
+	 */
+	private static int countLines(ByteBuffer chunk) {
+		int lines = 0, end = chunk.limit();
+		for (int i = 0; i < end; i++)
+			if (chunk.get(i) == '\n') lines++;
+		if (end > 0 && chunk.get(end - 1) != '\n') lines++;
+		return lines;
+	}
+
+	/**
+	 * Something done to a single chunk of a file
+	 */
+	private interface ChunkAction {
+		void run(int chunk) throws IOException;
+	}
+
+	/**
+	 * Runs the action on every chunk in parallel, passing on the first IOException thrown
+	 */
+	private static void invoke(ForkJoinPool pool, int chunks, ChunkAction action) throws IOException {
+		try {
+			pool.invoke(new ChunkTask(action, 0, chunks));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Runs an action on a range of chunks, splitting the range in half until it is a single chunk
+	 */
+	@SuppressWarnings("serial")
+	private static class ChunkTask extends RecursiveAction {
+
+		private final ChunkAction action;
+		private final int from, to;		// the range of chunks, to is exclusive
+
+		ChunkTask(ChunkAction action, int from, int to) {
+			this.action = action;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				try {
+					for (int c = from; c < to; c++)
+						action.run(c);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ChunkTask(action, from, mid), new ChunkTask(action, mid, to));
+			}
+		}
+	}
+
+	/**
+	 * Parses a scene in the text format the way it was originally done, by reading
+	 * each line as a String and splitting it. This makes a lot of garbage for big
+	 * files, and is only kept to compare SceneParser against.
+	 *
+	 * @param file the scene file
+	 * @param weldEpsilon how close two corners have to be to be welded into one vertex
+	 */
+	public static Scene loadTextWithSplit(File file, float weldEpsilon) throws IOException {
+
+		// Declares the map of Lights, is a linkedHashMap so it is order by insertion
+		Map<Vector3D, Color> lightList = new LinkedHashMap<>();
+
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		String line; String[] splitLine; // a variable for the line and split line is used to read and separate the data, respectively
+
+		// since the number of polygons is on one line by itself, turns that line into an integer
+		int numOfTris = strToInt(br.readLine());
+
+		// the polygons are read straight into flat arrays, rather than into Polygon objects
+		float[] positions = new float[numOfTris * 9];
+		int[] colours = new int[numOfTris];
+
+		for (int i = 0; i < numOfTris; i++) {
+
+			line = br.readLine();
+			splitLine = line.split(","); // uses a , as a delimiter to read the data in its distinct columns
+
+			// the colours in the txt files are split by the first three integers
+			int cols[] = strsToInts(splitLine[0],splitLine[1],splitLine[2]);
+			colours[i] = MeshBuffer.packColour(cols[0],cols[1],cols[2]);
+
+			int o = i * 9;
+			for (int j = 0; j < 3; j++) {
+				positions[o+j*3] = strToFloat(splitLine[j*3+3]);	// gets 0, 3, and 6 from splitLine values 3, 6 and 9
+				positions[o+j*3+1] = strToFloat(splitLine[j*3+4]);	// gets 1, 4, and 7 from splitLine values 4, 7 and 10
+				positions[o+j*3+2] = strToFloat(splitLine[j*3+5]);	// gets 2, 5, and 8 from splitLine values 5, 8 and 11
+			}
+
+		}
+
+		// repeats this as it has to read the last line of the document
+		line = br.readLine();
+		splitLine = line.split(","); // uses a , as a delimiter to read the data in its distinct columns
+
+		// grabs the light vector that the file has by default, with an initial colour of white
+		float[] vect = strsToFloats(splitLine[0],splitLine[1],splitLine[2]);
+		Color color = new Color(255,255,255);
+
+		lightList.put(new Vector3D(vect[0],vect[1],vect[2]), color);
+
+		br.close();
+
+		// the file repeats every shared vertex, so welds them together so that each one is only transformed once
+		MeshBuffer mesh = MeshBuffer.weld(positions, colours, weldEpsilon);
+
+		return Scene.fromMesh(mesh, lightList);
+
+	}
+
+	/**
+	 * Takes a String and returns it as an integer.
+	 */
+	private static int strToInt(String s) {
+		return Integer.parseInt(s);
+	}
+
+	/**
+	 * Takes a String and returns it as a float.
+	 */
+	private static float strToFloat(String s) {
+		return Float.parseFloat(s);
+	}
+
+	/**
+	 * Takes three Strings (x, y, z) and returns them as a float array
+	 * Used primarily for making Vector3D Objects, and calls the strToFloat class too
+	 * @param x is the x coord
+	 * @param y is the y coord
+	 * @param z is the z coord
+	 */
+	private static float[] strsToFloats(String x, String y, String z) {
+		return new float[]{strToFloat(x),strToFloat(y),strToFloat(z)};
+	}
+
+
+	/**
+	 * Takes three Strings (r, g, b) and returns them as an integer array
+	 * Used primarily for making Color objects, and calls the strToInt class too
+	 * @param r
+	 * @param g
+	 * @param b
+	 */
+	private static int[] strsToInts(String r, String g, String b) {
+		return new int[]{strToInt(r),strToInt(g),strToInt(b)};
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,414 @@
+package renderer;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A parser for the comma separated text scene format that works on the raw
+ * bytes of the file. Numbers are parsed straight out of a reusable byte buffer,
+ * so unlike reading lines and splitting them there is no String, String[] or
+ * boxed number made per line, and the only arrays made are the mesh arrays
+ * themselves.
+ *
+ * Any line that can't be read throws an IOException saying which line it was.
+ */
+public class SceneParser {
+
+	// the size of the buffer bytes are read into from the source
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// the shortest a polygon line can be, 12 one digit numbers, 11 commas and the end of the line
+	private static final int MIN_POLYGON_BYTES = 24;
+	// the most polygons whose positions fit in one array
+	private static final int MAX_POLYGONS = Integer.MAX_VALUE / 9;
+	// how many polygons there is room for to start with when the size of the input isn't known
+	private static final int INITIAL_POLYGONS = 1 << 12;
+
+	// powers of ten that can be represented exactly as doubles
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	// where the bytes come from, only one of these is used
+	private final InputStream in;
+	private final ByteBuffer source;
+
+	private final byte[] buffer;	// the bytes read from the source, but not parsed yet
+	private int pos, limit;			// the next byte to parse, and the end of the read bytes
+	private long read;				// how many bytes have been read from the source altogether
+	private int line;				// the line being parsed, for error messages
+	private final long size;		// how many bytes the source has altogether, or -1 if that isn't known
+
+	/**
+	 * Constructs a parser that reads from a stream. The stream isn't closed by the parser.
+	 */
+	public SceneParser(InputStream in) {
+		this(in, -1);
+	}
+
+	/**
+	 * Constructs a parser that reads from a stream of a known size, such as a file, so the
+	 * number of polygons can be checked against it before any room is made for them
+	 *
+	 * @param in the stream, which isn't closed by the parser
+	 * @param size how many bytes the stream has, or -1 if that isn't known
+	 */
+	public SceneParser(InputStream in, long size) {
+		this.in = in;
+		this.source = null;
+		this.buffer = new byte[BUFFER_SIZE];
+		this.line = 1;
+		this.size = size;
+	}
+
+	/**
+	 * Constructs a parser that reads from the remaining bytes of a buffer, such as a memory mapped file.
+	 */
+	public SceneParser(ByteBuffer source) {
+		this(source, 1);
+	}
+
+	/**
+	 * Constructs a parser that reads from the remaining bytes of a buffer, which
+	 * starts part way through a file
+	 *
+	 * @param source the bytes to parse
+	 * @param firstLine the line of the file the buffer starts at, for error messages
+	 */
+	public SceneParser(ByteBuffer source, int firstLine) {
+		this.in = null;
+		this.source = source;
+		this.buffer = new byte[BUFFER_SIZE];
+		this.line = firstLine;
+		this.size = source.remaining();
+	}
+
+	/**
+	 * Parses a whole scene. The first line is the number of polygons, then each
+	 * polygon is a line of r,g,b followed by the x,y,z of its three vertices, and
+	 * the last line is the x,y,z of the light, which is coloured white.
+	 *
+	 * @param weldEpsilon how close two corners have to be to be welded into one vertex
+	 */
+	public Scene parse(float weldEpsilon) throws IOException {
+
+		int numOfTris = parseHeader();
+
+		// if we don't know how big the input is, the count can't be checked yet, so the arrays only grow
+		// as the lines turn up. That way a wrong count runs out of lines rather than memory
+		int room = size < 0 ? Math.min(numOfTris, INITIAL_POLYGONS) : numOfTris;
+		float[] positions = new float[room * 9];
+		int[] colours = new int[room];
+
+		for (int done = 0; done < numOfTris; done = room) {
+			if (done == room) {
+				room = (int) Math.min(numOfTris, room * 2L);
+				positions = Arrays.copyOf(positions, room * 9);
+				colours = Arrays.copyOf(colours, room);
+			}
+			parseTriangles(positions, colours, done, room - done, numOfTris);
+		}
+
+		Map<Vector3D, Color> lights = new LinkedHashMap<>();
+		lights.put(parseLight(), new Color(255, 255, 255));
+
+		return Scene.fromMesh(MeshBuffer.weld(positions, colours, weldEpsilon), lights);
+
+	}
+
+	/**
+	 * Parses the first line, the number of polygons, checking it against the size of the
+	 * input if that's known
+	 */
+	public int parseHeader() throws IOException {
+		return parseHeader(size);
+	}
+
+	/**
+	 * Parses the first line, the number of polygons, checking that a file of the given size
+	 * could have that many polygon lines in it
+	 *
+	 * @param fileSize how many bytes the whole file has, or -1 if that isn't known
+	 */
+	public int parseHeader(long fileSize) throws IOException {
+		int count = nextInt();
+		if (count < 0) throw error("the number of polygons can't be negative");
+		if (count > MAX_POLYGONS) throw error("too many polygons: " + count);
+		if (fileSize >= 0 && (long) count * MIN_POLYGON_BYTES > fileSize)
+			throw error("a file of " + fileSize + " bytes can't have " + count + " polygons");
+		endLine();
+		return count;
+	}
+
+	/**
+	 * Parses the given number of polygon lines into the arrays, starting at polygon first
+	 *
+	 * @param positions 9 floats per polygon
+	 * @param colours 1 packed rgb int per polygon
+	 * @param first the polygon to start filling in at
+	 * @param count the number of lines to parse
+	 */
+	public void parseTriangles(float[] positions, int[] colours, int first, int count) throws IOException {
+		parseTriangles(positions, colours, first, count, first + count);
+	}
+
+	/**
+	 * The same as the method above, but says the file should have had total polygons if it ends too soon
+	 */
+	private void parseTriangles(float[] positions, int[] colours, int first, int count, int total) throws IOException {
+
+		for (int i = first; i < first + count; i++) {
+
+			if (!fill()) throw error("expected " + total + " polygons but the file ended after " + i);
+
+			int r = nextColour();
+			expectComma();
+			int g = nextColour();
+			expectComma();
+			int b = nextColour();
+			colours[i] = MeshBuffer.packColour(r, g, b);
+
+			int o = i * 9;
+			for (int j = 0; j < 9; j++) {
+				expectComma();
+				positions[o + j] = nextFloat();
+			}
+
+			endLine();
+
+		}
+
+	}
+
+	/**
+	 * Parses the light direction on the last line
+	 */
+	public Vector3D parseLight() throws IOException {
+		if (!fill()) throw error("expected the light direction but the file ended");
+		float x = nextFloat();
+		expectComma();
+		float y = nextFloat();
+		expectComma();
+		float z = nextFloat();
+		endLine();
+		return new Vector3D(x, y, z);
+	}
+
+	/**
+	 * Returns the line currently being parsed
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Returns how many bytes have been parsed so far
+	 */
+	public long getPosition() {
+		return read - limit + pos;
+	}
+
+	/**
+	 * Makes sure there is at least one unparsed byte in the buffer, reading more if needed
+	 *
+	 * @return false if the source has run out
+	 */
+	private boolean fill() throws IOException {
+
+		if (pos < limit) return true;
+
+		if (in != null) {
+			int n = in.read(buffer, 0, buffer.length);
+			limit = Math.max(0, n);
+		} else {
+			limit = Math.min(buffer.length, source.remaining());
+			source.get(buffer, 0, limit);
+		}
+
+		read += limit;
+		pos = 0;
+		return limit > 0;
+	}
+
+	/**
+	 * Skips spaces and tabs
+	 */
+	private void skipBlanks() throws IOException {
+		while (fill() && (buffer[pos] == ' ' || buffer[pos] == '\t'))
+			pos++;
+	}
+
+	/**
+	 * Checks the next thing on the line is a comma, and skips it
+	 */
+	private void expectComma() throws IOException {
+		skipBlanks();
+		if (!fill() || buffer[pos] != ',') throw error("expected a ','");
+		pos++;
+	}
+
+	/**
+	 * Checks there is nothing left on the line, and moves onto the next one.
+	 * The end of the file counts as the end of a line.
+	 */
+	private void endLine() throws IOException {
+		skipBlanks();
+		if (fill() && buffer[pos] == '\r') pos++;
+		if (!fill()) return;
+		if (buffer[pos] != '\n') throw error("unexpected '" + (char) buffer[pos] + "' at the end of the line");
+		pos++;
+		line++;
+	}
+
+	/**
+	 * Parses a colour value, which has to be between 0 and 255
+	 */
+	private int nextColour() throws IOException {
+		int c = nextInt();
+		if (c < 0 || c > 255) throw error("colour value " + c + " is not between 0 and 255");
+		return c;
+	}
+
+	/**
+	 * Parses an int
+	 */
+	private int nextInt() throws IOException {
+
+		skipBlanks();
+
+		boolean negative = false;
+		if (fill() && (buffer[pos] == '-' || buffer[pos] == '+')) negative = buffer[pos++] == '-';
+
+		long value = 0;
+		int digits = 0;
+		while (fill() && buffer[pos] >= '0' && buffer[pos] <= '9') {
+			value = value * 10 + (buffer[pos++] - '0');
+			if (++digits > 10) throw error("number is too big");
+		}
+
+		if (digits == 0) throw error("expected a number");
+		if (negative) value = -value;
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) throw error("number is too big");
+
+		return (int) value;
+
+	}
+
+	/**
+	 * Parses a float. The digits are collected into a long, and then scaled by a
+	 * power of ten, which is exact in double precision as long as there aren't too
+	 * many digits. Anything this can't do exactly (very long numbers, big exponents,
+	 * or the rare case where rounding the double to a float could round differently)
+	 * is handed over to Float.parseFloat, so the result always matches it.
+	 */
+	private float nextFloat() throws IOException {
+
+		skipBlanks();
+
+		// remembers the characters as they go past, in case they need to be handed over to Float.parseFloat
+		scratchLength = 0;
+
+		boolean negative = false;
+		if (fill() && (buffer[pos] == '-' || buffer[pos] == '+')) negative = take() == '-';
+
+		long mantissa = 0;
+		int digits = 0, exponent = 0;
+		boolean any = false;
+
+		while (fill() && buffer[pos] >= '0' && buffer[pos] <= '9') {
+			any = true;
+			int d = take() - '0';
+			if (mantissa == 0 && d == 0) continue;	// leading zeros don't count towards the digits
+			if (digits < 18) { mantissa = mantissa * 10 + d; digits++; }
+			else exponent++;						// too many digits, so drop them and note the scale
+		}
+
+		if (fill() && buffer[pos] == '.') {
+			take();
+			while (fill() && buffer[pos] >= '0' && buffer[pos] <= '9') {
+				any = true;
+				int d = take() - '0';
+				if (mantissa == 0 && d == 0) { exponent--; continue; }
+				if (digits < 18) { mantissa = mantissa * 10 + d; digits++; exponent--; }
+			}
+		}
+
+		if (!any) throw error("expected a number");
+
+		boolean slow = digits > 15;
+
+		if (fill() && (buffer[pos] == 'e' || buffer[pos] == 'E')) {
+			take();
+			boolean negativeExponent = false;
+			if (fill() && (buffer[pos] == '-' || buffer[pos] == '+')) negativeExponent = take() == '-';
+			int e = 0, eDigits = 0;
+			while (fill() && buffer[pos] >= '0' && buffer[pos] <= '9') {
+				if (e < 10000) e = e * 10 + (take() - '0');
+				else take();
+				eDigits++;
+			}
+			if (eDigits == 0) throw error("expected an exponent");
+			exponent += negativeExponent ? -e : e;
+		}
+
+		double value;
+		if (mantissa == 0) value = 0;
+		else if (slow || exponent > 22 || exponent < -22) return slowFloat();
+		else if (exponent >= 0) value = mantissa * POWERS_OF_TEN[exponent];
+		else value = mantissa / POWERS_OF_TEN[-exponent];
+
+		// if the double is exactly half way between two floats, casting might round the wrong way
+		long bits = Double.doubleToRawLongBits(value);
+		if ((bits & 0x1FFFFFFFL) == 0x10000000L || (value != 0 && value < Float.MIN_NORMAL))
+			return slowFloat();
+
+		float f = (float) value;
+		return negative ? -f : f;
+
+	}
+
+	// the characters of the number being parsed, for handing over to Float.parseFloat
+	private final byte[] scratch = new byte[64];
+	private int scratchLength;
+
+	/**
+	 * Takes the next byte, remembering it in the scratch array
+	 */
+	private byte take() {
+		byte b = buffer[pos++];
+		if (scratchLength < scratch.length) scratch[scratchLength] = b;
+		scratchLength++;
+		return b;
+	}
+
+	/**
+	 * Parses the number just read with Float.parseFloat
+	 */
+	private float slowFloat() throws IOException {
+		if (scratchLength > scratch.length) throw error("number is too long");
+		try {
+			return Float.parseFloat(new String(scratch, 0, scratchLength, StandardCharsets.US_ASCII));
+		} catch (NumberFormatException e) {
+			throw error("expected a number");
+		}
+	}
+
+	/**
+	 * Makes an exception saying what went wrong on the current line
+	 */
+	private IOException error(String message) {
+		return new IOException("line " + line + ": " + message);
+	}
+
+}
+
+// code for comp261 assignments
@@ -0,0 +1,338 @@
+package renderer;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Draws a scene into an image, without needing a GUI. This is the part of
+ * Renderer's render method that does the actual drawing, pulled out so that
+ * scenes can be rendered by benchmarks and other tools that have no window.
+ *
+ * The framebuffer, depth buffer and the working arrays of the geometry stage
+ * are all reused from one frame to the next, so a SceneRenderer should only be
+ * used by one thread at a time.
+ */
+public class SceneRenderer {
+
+	private final int width, height;	// the size of the image drawn
+
+	// the framebuffer is reused every frame, and its image is what gets returned
+	private final FrameBuffer frameBuffer;
+	// as is the depth buffer, which is cleared at the start of every frame
+	private final DepthBuffer depthBuffer;
+
+	// the culling, shading and edge lists are worked out in parallel before either way of drawing
+	private final GeometryStage geometry;
+	// drawing one polygon at a time reads each one's edge list through this
+	private final EdgeList edgeList = new EdgeList();
+	// when tiled is true the screen is split into tiles which are drawn in parallel
+	private final TileRasterizer tileRasterizer;
+	private boolean tiled = false;
+	// fills in each scanline of each polygon, either way of drawing uses it
+	private SpanKernel spanKernel = SpanKernel.SCALAR;
+	// when smooth is true the polygons are gouraud shaded, blending the light at each vertex across them
+	private boolean smooth = false;
+	// when halfSpace is true the polygons are drawn with edge functions rather than edge lists
+	private boolean halfSpace = false;
+	// when occlusionCulling is true, polygons completely behind what's already drawn are skipped,
+	// which is checked against hiZ, a coarse pyramid of the depth buffer
+	private boolean occlusionCulling = false;
+	private final HiZBuffer hiZ;
+
+	// when deferred is true, drawing writes the index of the polygon at each pixel into ids (-1 for none)
+	// and the colours are only worked out afterwards, from ids. The polygons are only drawn again when
+	// the scene has moved or changed, so changing the lights just shades the polygons on screen again
+	private boolean deferred = false;
+	private final int[] ids;
+	private Scene idScene;						// the scene ids was drawn from, or null if ids needs drawing again
+	private int idModelVersion, idTransformVersion;
+	// the colour of each polygon on screen. shadeStamp says which frame it was shaded for, so a
+	// polygon covering lots of pixels is only shaded once each frame
+	private int[] shades = new int[0], shadeStamp = new int[0];
+	private int stamp;
+
+	/**
+	 * Constructs a SceneRenderer that does its parallel work on the common pool
+	 *
+	 * @param width the width of the image drawn
+	 * @param height the height of the image drawn
+	 */
+	public SceneRenderer(int width, int height) {
+		this(width, height, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs a SceneRenderer
+	 *
+	 * @param width the width of the image drawn
+	 * @param height the height of the image drawn
+	 * @param pool the pool the geometry stage and tiles are run on
+	 */
+	public SceneRenderer(int width, int height, ForkJoinPool pool) {
+		this.width = width;
+		this.height = height;
+		this.frameBuffer = new FrameBuffer(width, height);
+		this.depthBuffer = new DepthBuffer(width, height);
+		this.hiZ = new HiZBuffer(depthBuffer);
+		this.ids = new int[width * height];
+		this.geometry = new GeometryStage(width, height, GeometryStage.DEFAULT_CHUNK_SIZE, pool);
+		this.tileRasterizer = new TileRasterizer(width, height, TileRasterizer.DEFAULT_TILE_SIZE, pool);
+	}
+
+	/**
+	 * Draws the scene as it is, so it should already be scaled and moved onto the screen
+	 *
+	 * @param scene the scene to draw
+	 * @param ambientLight the ambient light in the scene
+	 * @return the framebuffer's image, which is drawn over by the next call
+	 */
+	public BufferedImage render(Scene scene, Color ambientLight) {
+
+		// deferred shading gives each polygon one colour, so smooth shading is always drawn the normal way
+		if (deferred && !smooth) return renderDeferred(scene, ambientLight);
+
+		// clears the framebuffer back to the grid, and the depth buffer back to infinity
+		frameBuffer.clear();
+		depthBuffer.clear();
+		hiZ.clear();
+
+		// hides, shades and sets up every polygon, spread over every core
+		if (smooth) geometry.processSmooth(scene.getMesh(), scene.getLightArray(), ambientLight);
+		else geometry.process(scene.getMesh(), scene.getLightArray(), ambientLight);
+
+		if (tiled) {
+
+			// draws the tiles of the screen in parallel
+			tileRasterizer.render(geometry, frameBuffer, depthBuffer, spanKernel, occlusionCulling ? hiZ : null);
+
+		} else {
+
+			// draws the visible polygons one at a time, in the order they are in the mesh
+			boolean[] visible = geometry.getVisible();
+			int[] colours = geometry.getColours();
+
+			for (int i = 0; i < geometry.getTriangleCount(); i++)
+				if (visible[i]) drawPolygon(frameBuffer.getPixels(), i, colours[i], false);
+
+		}
+
+		// after all the polygons have been drawn, fills in any holes that have not been coloured in the for loop above.
+		// Half-spaces don't leave any
+		if (!halfSpace) Pipeline.removeHoles(frameBuffer,depthBuffer);
+
+		// the framebuffer is backed by the image already, so there is nothing to convert
+		return frameBuffer.getImage();
+
+	}
+
+	/**
+	 * Draws the scene with deferred shading. The polygons are only drawn (as indices) if the scene has
+	 * moved or changed since the last frame, then every pixel is coloured by the polygon it shows.
+	 * The picture is exactly the same as drawing it the normal way
+	 */
+	private BufferedImage renderDeferred(Scene scene, Color ambientLight) {
+
+		MeshBuffer mesh = scene.getMesh();
+
+		if (scene != idScene || scene.getModelVersion() != idModelVersion || scene.getTransformVersion() != idTransformVersion) {
+
+			depthBuffer.clear();
+			hiZ.clear();
+			Arrays.fill(ids, -1);
+
+			// hides and sets up every polygon, but leaves the shading until we know which ones are on screen
+			geometry.process(mesh);
+
+			if (tiled) {
+				tileRasterizer.renderIds(geometry, ids, depthBuffer, spanKernel, occlusionCulling ? hiZ : null);
+			} else {
+				boolean[] visible = geometry.getVisible();
+				for (int i = 0; i < geometry.getTriangleCount(); i++)
+					if (visible[i]) drawPolygon(ids, i, i, true);
+			}
+
+			// the holes are filled with the polygon next to them, so they get its colour below
+			if (!halfSpace) Pipeline.removeHoles(ids, depthBuffer.getDepths(), width, height);
+
+			idScene = scene;
+			idModelVersion = scene.getModelVersion();
+			idTransformVersion = scene.getTransformVersion();
+
+		}
+
+		int triangleCount = mesh.getTriangleCount();
+		if (shades.length < triangleCount) {
+			shades = new int[triangleCount];
+			shadeStamp = new int[triangleCount];
+			stamp = 0;
+		}
+		stamp++;
+
+		// anything no polygon covers is left as the background grid
+		frameBuffer.clear();
+		int[] pixels = frameBuffer.getPixels();
+		LightArray lights = scene.getLightArray();
+
+		for (int p = 0; p < ids.length; p++) {
+			int id = ids[p];
+			if (id < 0) continue;
+			if (shadeStamp[id] != stamp) {
+				shades[id] = Pipeline.getShading(mesh, id, lights, ambientLight);
+				shadeStamp[id] = stamp;
+			}
+			pixels[p] = shades[id];
+		}
+
+		return frameBuffer.getImage();
+
+	}
+
+	/**
+	 * Draws one polygon the geometry stage has set up onto the whole screen, from its edge list
+	 * or with its half-spaces
+	 *
+	 * @param pixels the framebuffer's pixels, or the polygon indices
+	 * @param i the index of the polygon
+	 * @param value what is written into each pixel it covers
+	 * @param ids whether pixels is the polygon indices, which are never smooth shaded
+	 */
+	private void drawPolygon(int[] pixels, int i, int value, boolean ids) {
+
+		// skips the polygon if it's completely behind what's been drawn already
+		int[] bounds = geometry.getBounds();
+		int minX = bounds[i * 4], minY = bounds[i * 4 + 1], maxX = bounds[i * 4 + 2], maxY = bounds[i * 4 + 3];
+		if (occlusionCulling && hiZ.isOccluded(minX, minY, maxX, maxY, geometry.getNearest()[i])) return;
+
+		if (halfSpace)
+			EdgeFunctionRasterizer.draw(pixels, depthBuffer.getDepths(), width, geometry.getMesh(), i,
+					ids ? null : geometry.getVertexLights(), value, 0, 0, width, height, spanKernel);
+		else
+			Pipeline.computeZBuffer(pixels, depthBuffer.getDepths(), width, geometry.getEdgeList(i, edgeList), value,
+					0, 0, width, height, spanKernel);
+
+		if (occlusionCulling) hiZ.markDrawn(minX, minY, maxX, maxY);
+
+	}
+
+	/**
+	 * Returns whether the screen is drawn as tiles in parallel
+	 */
+	public boolean isTiled() {
+		return tiled;
+	}
+
+	/**
+	 * Sets whether the screen is drawn as tiles in parallel, or one polygon at a time
+	 */
+	public void setTiled(boolean tiled) {
+		this.tiled = tiled;
+	}
+
+	/**
+	 * Returns whether the scene is drawn with deferred shading
+	 */
+	public boolean isDeferred() {
+		return deferred;
+	}
+
+	/**
+	 * Sets whether the scene is drawn with deferred shading. With it, a frame where only the
+	 * lights or the ambient light have changed just shades the polygons on screen again,
+	 * without drawing anything
+	 */
+	public void setDeferred(boolean deferred) {
+		this.deferred = deferred;
+		this.idScene = null;
+	}
+
+	/**
+	 * Returns whether the polygons are drawn with edge functions rather than edge lists
+	 */
+	public boolean isHalfSpace() {
+		return halfSpace;
+	}
+
+	/**
+	 * Sets whether the polygons are drawn with edge functions (EdgeFunctionRasterizer) rather
+	 * than edge lists. These don't leave holes between polygons, so removeHoles isn't run,
+	 * but the edges of the polygons land on slightly different pixels
+	 */
+	public void setHalfSpace(boolean halfSpace) {
+		this.halfSpace = halfSpace;
+		this.geometry.setHalfSpace(halfSpace);
+		this.idScene = null;
+	}
+
+	/**
+	 * Returns whether polygons hidden behind ones drawn before them are skipped
+	 */
+	public boolean isOcclusionCulling() {
+		return occlusionCulling;
+	}
+
+	/**
+	 * Sets whether polygons are checked against a coarse pyramid of the depth buffer before
+	 * they're drawn, and skipped if they're completely behind what has been drawn already.
+	 * The picture is the same either way
+	 */
+	public void setOcclusionCulling(boolean occlusionCulling) {
+		this.occlusionCulling = occlusionCulling;
+		this.geometry.setOcclusionCulling(occlusionCulling);
+	}
+
+	/**
+	 * Returns whether the polygons are smooth (gouraud) shaded
+	 */
+	public boolean isSmooth() {
+		return smooth;
+	}
+
+	/**
+	 * Sets whether the polygons are smooth (gouraud) shaded, or each one is a single colour.
+	 * Smooth shading is always drawn the normal way, even if deferred shading is on
+	 */
+	public void setSmooth(boolean smooth) {
+		this.smooth = smooth;
+	}
+
+	/**
+	 * Returns the kernel that fills in the scanlines
+	 */
+	public SpanKernel getSpanKernel() {
+		return spanKernel;
+	}
+
+	/**
+	 * Sets the kernel that fills in the scanlines, SpanKernel.SCALAR (the default) or SpanKernel.vector()
+	 */
+	public void setSpanKernel(SpanKernel spanKernel) {
+		this.spanKernel = spanKernel;
+	}
+
+	/**
+	 * Returns the framebuffer the scene is drawn into
+	 */
+	public FrameBuffer getFrameBuffer() {
+		return frameBuffer;
+	}
+
+	/**
+	 * Returns the depth buffer used while drawing
+	 */
+	public DepthBuffer getDepthBuffer() {
+		return depthBuffer;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+}
+
+// code for comp261 assignments
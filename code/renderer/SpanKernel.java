@@ -0,0 +1,100 @@
+package renderer;
+
+/**
+ * Fills in a single span (part of one scanline) of a polygon, which is the
+ * innermost loop of computeZBuffer. The z of each pixel is
+ * spanZ + slope * (x - spanX), and a pixel is only coloured in if that z is
+ * closer than the depth already there.
+ *
+ * There are two kernels: SCALAR, which does a pixel at a time, and the one
+ * from vector(), which compares and writes a whole vector of pixels at once
+ * with the Vector API. They give exactly the same result, so which one is used
+ * only changes how quickly a frame is drawn.
+ */
+public interface SpanKernel {
+
+	/** Fills the span a pixel at a time */
+	SpanKernel SCALAR = new SpanKernel() {
+
+		@Override
+		public void fill(int[] pixels, float[] depths, int row, int startX, int endX,
+						 int spanX, float spanZ, float slope, int colour) {
+
+			for (int x = startX; x < endX; x++) {
+
+				float z = spanZ + slope*(x-spanX);
+
+				// if the z is closer to the screen than the current zdepth
+				if (z < depths[row + x]) {
+					pixels[row + x] = colour;
+					depths[row + x] = z;
+				}
+
+			}
+
+		}
+
+		@Override
+		public String toString() {
+			return "scalar";
+		}
+	};
+
+	/**
+	 * Returns the kernel that uses the Vector API, or SCALAR if java wasn't run
+	 * with --add-modules jdk.incubator.vector
+	 */
+	static SpanKernel vector() {
+		return VectorSupport.AVAILABLE ? VectorSpanKernel.INSTANCE : SCALAR;
+	}
+
+	/**
+	 * Colours in every pixel from startX up to endX on the row that is closer than the depth already there
+	 *
+	 * @param pixels the framebuffer's packed colours
+	 * @param depths the depth buffer, in the same layout as pixels
+	 * @param row the index of the first pixel in the row
+	 * @param startX the first x to fill (inclusive)
+	 * @param endX the last x to fill (exclusive)
+	 * @param spanX the x the depths are worked out from, which can be left of startX
+	 * @param spanZ the z at spanX
+	 * @param slope how much z goes up with each pixel
+	 * @param colour the packed rgb colour of the polygon
+	 */
+	void fill(int[] pixels, float[] depths, int row, int startX, int endX,
+			  int spanX, float spanZ, float slope, int colour);
+
+	/**
+	 * The same as fill, but for smooth shading, where the colour changes across the span
+	 * the same way as z does. Both kernels use this loop, since the colour has to be
+	 * rounded and packed for every pixel
+	 *
+	 * @param r the red at spanX, 0 to 255
+	 * @param g the green at spanX
+	 * @param b the blue at spanX
+	 * @param dr how much red goes up with each pixel
+	 * @param dg how much green goes up with each pixel
+	 * @param db how much blue goes up with each pixel
+	 */
+	default void fillSmooth(int[] pixels, float[] depths, int row, int startX, int endX,
+							int spanX, float spanZ, float slope, float r, float g, float b, float dr, float dg, float db) {
+
+		for (int x = startX; x < endX; x++) {
+
+			float z = spanZ + slope*(x-spanX);
+
+			if (z < depths[row + x]) {
+				int red = Math.min(255, Math.max(0, (int) (r + dr*(x-spanX))));
+				int green = Math.min(255, Math.max(0, (int) (g + dg*(x-spanX))));
+				int blue = Math.min(255, Math.max(0, (int) (b + db*(x-spanX))));
+				pixels[row + x] = (red << 16) | (green << 8) | blue;
+				depths[row + x] = z;
+			}
+
+		}
+
+	}
+
+}
+
+// code for comp261 assignments
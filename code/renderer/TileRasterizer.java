@@ -0,0 +1,238 @@
+package renderer;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Draws a scene by splitting the screen up into square tiles and drawing the
+ * tiles in parallel on a ForkJoinPool.
+ *
+ * Every visible polygon (as found by a GeometryStage) is "binned" into every
+ * tile its bounding box touches. Each tile then draws its own list
+ * of polygons, clipped to the tile. Since no two tiles share a pixel, the tiles
+ * can all write into the same FrameBuffer and DepthBuffer without any locking,
+ * and since each tile keeps its polygons in the same order as the mesh, the
+ * result is exactly the same as drawing them one at a time.
+ *
+ * If the geometry stage was set up for half-spaces, each polygon is drawn with
+ * EdgeFunctionRasterizer instead of its edge list.
+ */
+public class TileRasterizer {
+
+	/** The default width and height of a tile in pixels */
+	public static final int DEFAULT_TILE_SIZE = 32;
+
+	private final int tileSize;				// the width and height of each tile
+	private final int tilesX, tilesY;		// the number of tiles across and down the screen
+	private final int width, height;		// the size of the screen
+	private final ForkJoinPool pool;		// the pool the tiles are drawn on
+
+	// the bins, the polygons in tile t are tileTris[tileStart[t]] up to tileTris[tileStart[t+1]]
+	private final int[] tileStart;
+	private int[] tileTris = new int[0];
+
+	// the edge list each tile reads its polygons' rows through, made the first time the tile needs one
+	private final EdgeList[] edgeLists;
+
+	/**
+	 * Constructs a TileRasterizer using the default tile size and the common pool
+	 *
+	 * @param width the width of the screen
+	 * @param height the height of the screen
+	 */
+	public TileRasterizer(int width, int height) {
+		this(width, height, DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs a TileRasterizer
+	 *
+	 * @param width the width of the screen
+	 * @param height the height of the screen
+	 * @param tileSize the width and height of each tile
+	 * @param pool the pool to draw the tiles on
+	 */
+	public TileRasterizer(int width, int height, int tileSize, ForkJoinPool pool) {
+		if (tileSize <= 0)
+			throw new IllegalArgumentException("TileRasterizer: tile size must be positive, was " + tileSize);
+
+		this.width = width;
+		this.height = height;
+		this.tileSize = tileSize;
+		this.tilesX = (width + tileSize - 1) / tileSize;
+		this.tilesY = (height + tileSize - 1) / tileSize;
+		this.pool = pool;
+		this.tileStart = new int[tilesX * tilesY + 1];
+		this.edgeLists = new EdgeList[tilesX * tilesY];
+	}
+
+	/**
+	 * Draws every visible polygon from the geometry stage into the framebuffer and depth buffer.
+	 * The buffers should already be cleared, and removeHoles is left to the caller.
+	 *
+	 * @param geometry the geometry stage, which has already processed the mesh
+	 * @param frameBuffer
+	 * @param depthBuffer
+	 */
+	public void render(GeometryStage geometry, FrameBuffer frameBuffer, DepthBuffer depthBuffer) {
+		render(geometry, frameBuffer, depthBuffer, SpanKernel.SCALAR);
+	}
+
+	/**
+	 * The same as the method above, but fills in the scanlines with the given kernel
+	 *
+	 * @param kernel fills in the pixels of each scanline
+	 */
+	public void render(GeometryStage geometry, FrameBuffer frameBuffer, DepthBuffer depthBuffer, SpanKernel kernel) {
+		render(geometry, frameBuffer, depthBuffer, kernel, null);
+	}
+
+	/**
+	 * The same as the method above, but skips any polygon that the pyramid says is hidden
+	 * behind what the tile has drawn so far
+	 *
+	 * @param hiZ the pyramid over depthBuffer, cleared with it, or null to draw every polygon
+	 */
+	public void render(GeometryStage geometry, FrameBuffer frameBuffer, DepthBuffer depthBuffer, SpanKernel kernel, HiZBuffer hiZ) {
+
+		bin(geometry);
+
+		// draws all of the tiles, this only returns once every tile has been drawn
+		pool.invoke(new TileTask(geometry, frameBuffer.getPixels(), depthBuffer, kernel, hiZ, false, 0, tilesX * tilesY));
+
+	}
+
+	/**
+	 * The same as the method above, but writes the index of the closest polygon into
+	 * each pixel rather than its colour, for deferred shading
+	 *
+	 * @param ids the index of the polygon at each pixel, laid out like the framebuffer
+	 * @param hiZ the pyramid over depthBuffer, cleared with it, or null to draw every polygon
+	 */
+	public void renderIds(GeometryStage geometry, int[] ids, DepthBuffer depthBuffer, SpanKernel kernel, HiZBuffer hiZ) {
+
+		bin(geometry);
+
+		pool.invoke(new TileTask(geometry, ids, depthBuffer, kernel, hiZ, true, 0, tilesX * tilesY));
+
+	}
+
+	/**
+	 * Sorts the visible polygons into the tiles they cover. This counts the polygons
+	 * in each tile first, so the bins can all be packed into the one array.
+	 */
+	private void bin(GeometryStage geometry) {
+
+		boolean[] visible = geometry.getVisible();
+		int[] bounds = geometry.getBounds();
+		int triangles = geometry.getTriangleCount();
+
+		Arrays.fill(tileStart, 0);
+
+		// counts how many polygons land in each tile, shifted by one for the running total below
+		for (int n = 0; n < triangles; n++) {
+			if (!visible[n]) continue;
+			for (int ty = bounds[n * 4 + 1] / tileSize; ty <= bounds[n * 4 + 3] / tileSize; ty++)
+				for (int tx = bounds[n * 4] / tileSize; tx <= bounds[n * 4 + 2] / tileSize; tx++)
+					tileStart[ty * tilesX + tx + 1]++;
+		}
+
+		// turns the counts into where each tile's bin starts
+		for (int t = 0; t < tilesX * tilesY; t++)
+			tileStart[t + 1] += tileStart[t];
+
+		if (tileTris.length < tileStart[tilesX * tilesY])
+			tileTris = new int[tileStart[tilesX * tilesY]];
+
+		// fills the bins in mesh order, using a copy of the starts as the next free slot
+		int[] next = Arrays.copyOf(tileStart, tilesX * tilesY);
+		for (int n = 0; n < triangles; n++) {
+			if (!visible[n]) continue;
+			for (int ty = bounds[n * 4 + 1] / tileSize; ty <= bounds[n * 4 + 3] / tileSize; ty++)
+				for (int tx = bounds[n * 4] / tileSize; tx <= bounds[n * 4 + 2] / tileSize; tx++)
+					tileTris[next[ty * tilesX + tx]++] = n;
+		}
+
+	}
+
+	/**
+	 * Draws a single tile, clipping every polygon in its bin to the tile. Each pixel is given
+	 * the polygon's index if ids is true, otherwise its colour
+	 */
+	private void drawTile(int tile, GeometryStage geometry, int[] pixels, DepthBuffer depthBuffer, SpanKernel kernel,
+						  HiZBuffer hiZ, boolean ids) {
+
+		int[] colours = geometry.getColours();
+		int[] bounds = geometry.getBounds();
+		float[] nearest = geometry.getNearest();
+
+		int minX = (tile % tilesX) * tileSize, minY = (tile / tilesX) * tileSize;
+		int maxX = Math.min(width, minX + tileSize), maxY = Math.min(height, minY + tileSize);
+
+		for (int i = tileStart[tile]; i < tileStart[tile + 1]; i++) {
+			int n = tileTris[i];
+
+			// the part of the polygon's bounding box in this tile
+			int drawMinX = Math.max(minX, bounds[n * 4]), drawMinY = Math.max(minY, bounds[n * 4 + 1]),
+				drawMaxX = Math.min(maxX - 1, bounds[n * 4 + 2]), drawMaxY = Math.min(maxY - 1, bounds[n * 4 + 3]);
+			if (hiZ != null && hiZ.isOccluded(drawMinX, drawMinY, drawMaxX, drawMaxY, nearest[n])) continue;
+
+			if (geometry.isHalfSpace())
+				EdgeFunctionRasterizer.draw(pixels, depthBuffer.getDepths(), width, geometry.getMesh(), n,
+						ids ? null : geometry.getVertexLights(), ids ? n : colours[n], minX, minY, maxX, maxY, kernel);
+			else {
+				// the edge list was set up by the geometry stage, this just points at its rows
+				if (edgeLists[tile] == null) edgeLists[tile] = new EdgeList();
+				geometry.getEdgeList(n, edgeLists[tile]);
+				Pipeline.computeZBuffer(pixels, depthBuffer.getDepths(), width, edgeLists[tile], ids ? n : colours[n],
+						minX, minY, maxX, maxY, kernel);
+			}
+
+			if (hiZ != null) hiZ.markDrawn(drawMinX, drawMinY, drawMaxX, drawMaxY);
+		}
+
+	}
+
+	/**
+	 * Draws a range of tiles, splitting the range in half until it is small enough
+	 * to just draw. Splitting like this lets idle threads steal the other half.
+	 */
+	@SuppressWarnings("serial")
+	private class TileTask extends RecursiveAction {
+
+		private final GeometryStage geometry;
+		private final int[] pixels;			// the framebuffer's pixels, or the polygon indices
+		private final DepthBuffer depthBuffer;
+		private final SpanKernel kernel;
+		private final HiZBuffer hiZ;		// skips hidden polygons, or null to draw them all
+		private final boolean ids;			// whether pixels is the polygon indices
+		private final int from, to;		// the range of tiles, to is exclusive
+
+		TileTask(GeometryStage geometry, int[] pixels, DepthBuffer depthBuffer, SpanKernel kernel, HiZBuffer hiZ, boolean ids, int from, int to) {
+			this.geometry = geometry;
+			this.pixels = pixels;
+			this.depthBuffer = depthBuffer;
+			this.kernel = kernel;
+			this.hiZ = hiZ;
+			this.ids = ids;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 2) {
+				for (int t = from; t < to; t++)
+					drawTile(t, geometry, pixels, depthBuffer, kernel, hiZ, ids);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new TileTask(geometry, pixels, depthBuffer, kernel, hiZ, ids, from, mid),
+						  new TileTask(geometry, pixels, depthBuffer, kernel, hiZ, ids, mid, to));
+			}
+		}
+	}
+
+}
+
+// code for comp261 assignments
@@ -14,6 +14,9 @@ public class Transform {
 
 	private final float[][] values;
 
+	// whether the bulk transform of separate x, y, z arrays can use VectorTransform, see VectorSupport
+	private static final boolean VECTOR = VectorSupport.AVAILABLE;
+
 	/** Construct a Transformation given 3x4 array of elements */
 	private Transform(float[][] v) {
 		if (v.length != 3 || v[0].length != 4)
@@ -110,6 +113,115 @@ public class Transform {
 		return new Vector3D(x, y, z);
 	}
 
+	/* apply this transform in place to the point stored at points[offset..offset+2] */
+	public void multiply(float[] points, int offset) {
+		float vx = points[offset], vy = points[offset + 1], vz = points[offset + 2];
+		float x = values[0][3];
+		float y = values[1][3];
+		float z = values[2][3];
+		x += values[0][0] * vx + values[0][1] * vy + values[0][2] * vz;
+		y += values[1][0] * vx + values[1][1] * vy + values[1][2] * vz;
+		z += values[2][0] * vx + values[2][1] * vy + values[2][2] * vz;
+		points[offset] = x;
+		points[offset + 1] = y;
+		points[offset + 2] = z;
+	}
+
+	/*
+	 * apply this transform to count points stored x, y, z one after another in src, writing them into dst.
+	 * src and dst can be the same array. This is the same arithmetic as multiply(Vector3D), but the matrix
+	 * is only read once and nothing is allocated, so it's much quicker for a whole mesh
+	 */
+	public void multiply(float[] src, float[] dst, int count) {
+		if (src.length < count * 3 || dst.length < count * 3)
+			throw new IllegalArgumentException("multiply: " + count + " points don't fit in arrays of "
+					+ src.length + " and " + dst.length);
+
+		float m00 = values[0][0], m01 = values[0][1], m02 = values[0][2], m03 = values[0][3];
+		float m10 = values[1][0], m11 = values[1][1], m12 = values[1][2], m13 = values[1][3];
+		float m20 = values[2][0], m21 = values[2][1], m22 = values[2][2], m23 = values[2][3];
+
+		for (int o = 0; o < count * 3; o += 3) {
+			float vx = src[o], vy = src[o + 1], vz = src[o + 2];
+			dst[o] = m03 + (m00 * vx + m01 * vy + m02 * vz);
+			dst[o + 1] = m13 + (m10 * vx + m11 * vy + m12 * vz);
+			dst[o + 2] = m23 + (m20 * vx + m21 * vy + m22 * vz);
+		}
+	}
+
+	/*
+	 * turn count unit normals stored x, y, z one after another in src by this transform, writing them into dst.
+	 * A normal is a cross product of two edges, and (Ma) x (Mb) = cof(M) (a x b) where cof(M) is the cofactor
+	 * matrix of the 3x3 part of the transform, whose rows are the cross products of its rows. So this gives the
+	 * normal of the transformed triangle without the triangle, and the translation doesn't matter at all.
+	 * The results are divided by their length again, and (0, 0, 0) stays (0, 0, 0)
+	 */
+	public void multiplyNormals(float[] src, float[] dst, int count) {
+		if (src.length < count * 3 || dst.length < count * 3)
+			throw new IllegalArgumentException("multiplyNormals: " + count + " normals don't fit in arrays of "
+					+ src.length + " and " + dst.length);
+
+		float m00 = values[0][0], m01 = values[0][1], m02 = values[0][2];
+		float m10 = values[1][0], m11 = values[1][1], m12 = values[1][2];
+		float m20 = values[2][0], m21 = values[2][1], m22 = values[2][2];
+
+		// row 0 is row 1 x row 2, row 1 is row 2 x row 0, row 2 is row 0 x row 1
+		float c00 = m11 * m22 - m12 * m21, c01 = m12 * m20 - m10 * m22, c02 = m10 * m21 - m11 * m20;
+		float c10 = m21 * m02 - m22 * m01, c11 = m22 * m00 - m20 * m02, c12 = m20 * m01 - m21 * m00;
+		float c20 = m01 * m12 - m02 * m11, c21 = m02 * m10 - m00 * m12, c22 = m00 * m11 - m01 * m10;
+
+		for (int o = 0; o < count * 3; o += 3) {
+			float nx = src[o], ny = src[o + 1], nz = src[o + 2];
+			float x = c00 * nx + c01 * ny + c02 * nz;
+			float y = c10 * nx + c11 * ny + c12 * nz;
+			float z = c20 * nx + c21 * ny + c22 * nz;
+			float mag = (float) Math.sqrt(x * x + y * y + z * z);
+			if (mag > 0) {
+				dst[o] = x / mag;
+				dst[o + 1] = y / mag;
+				dst[o + 2] = z / mag;
+			} else {
+				dst[o] = dst[o + 1] = dst[o + 2] = 0;
+			}
+		}
+	}
+
+	/*
+	 * apply this transform to count points stored as separate x, y and z arrays, writing them into outX,
+	 * outY and outZ, which can be the same arrays. When the Vector API is there this transforms a whole
+	 * vector's worth of points at once, otherwise it is the same loop as the bulk multiply above. Either
+	 * way the answers are exactly the same as multiply(Vector3D)
+	 */
+	public void multiply(float[] xs, float[] ys, float[] zs, float[] outX, float[] outY, float[] outZ, int count) {
+		if (xs.length < count || ys.length < count || zs.length < count
+				|| outX.length < count || outY.length < count || outZ.length < count)
+			throw new IllegalArgumentException("multiply: " + count + " points don't fit in the arrays");
+
+		if (VECTOR) {
+			VectorTransform.multiply(new float[] { values[0][0], values[0][1], values[0][2], values[0][3],
+					values[1][0], values[1][1], values[1][2], values[1][3],
+					values[2][0], values[2][1], values[2][2], values[2][3] },
+					xs, ys, zs, outX, outY, outZ, count);
+			return;
+		}
+
+		float m00 = values[0][0], m01 = values[0][1], m02 = values[0][2], m03 = values[0][3];
+		float m10 = values[1][0], m11 = values[1][1], m12 = values[1][2], m13 = values[1][3];
+		float m20 = values[2][0], m21 = values[2][1], m22 = values[2][2], m23 = values[2][3];
+
+		for (int i = 0; i < count; i++) {
+			float vx = xs[i], vy = ys[i], vz = zs[i];
+			outX[i] = m03 + (m00 * vx + m01 * vy + m02 * vz);
+			outY[i] = m13 + (m10 * vx + m11 * vy + m12 * vz);
+			outZ[i] = m23 + (m20 * vx + m21 * vy + m22 * vz);
+		}
+	}
+
+	/** Returns whether the bulk multiply of separate x, y, z arrays is using the Vector API */
+	public static boolean isVectorised() {
+		return VECTOR;
+	}
+
 	public String toString() {
 		StringBuilder ans = new StringBuilder();
 		for (int row = 0; row < 3; row++) {
@@ -0,0 +1,76 @@
+package renderer;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The span kernel written with the Vector API. It works out the z of a whole
+ * vector of pixels at once, compares them all with the depth buffer, and blends
+ * the polygon's colour and depths in wherever they are closer.
+ *
+ * Only SpanKernel.vector() should load this class, see VectorSupport for why.
+ */
+final class VectorSpanKernel implements SpanKernel {
+
+	static final VectorSpanKernel INSTANCE = new VectorSpanKernel();
+
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+	// the same number of lanes as FLOATS, so a mask from comparing depths can pick the pixels too
+	private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, FLOATS.vectorShape());
+	private static final int LANES = FLOATS.length();
+
+	// 0, 1, 2, ... which is added to the offset of the first pixel in the vector to get each pixel's offset
+	private static final FloatVector STEPS = FloatVector.fromArray(FLOATS, steps(), 0);
+
+	private VectorSpanKernel() {}
+
+	private static float[] steps() {
+		float[] steps = new float[LANES];
+		for (int i = 0; i < LANES; i++) steps[i] = i;
+		return steps;
+	}
+
+	@Override
+	public void fill(int[] pixels, float[] depths, int row, int startX, int endX,
+					 int spanX, float spanZ, float slope, int colour) {
+
+		int x = startX;
+
+		if (endX - startX >= LANES) {
+
+			FloatVector zs = FloatVector.broadcast(FLOATS, spanZ);
+			FloatVector slopes = FloatVector.broadcast(FLOATS, slope);
+			IntVector colours = IntVector.broadcast(INTS, colour);
+
+			for (int bound = endX - LANES; x <= bound; x += LANES) {
+
+				// the offsets are whole numbers well under 2^24, so they are exact as floats and each z
+				// is rounded the same way as spanZ + slope*(x-spanX) is in the scalar kernel
+				FloatVector z = zs.add(slopes.mul(STEPS.add(x - spanX)));
+
+				// blends rather than doing a masked store, the unchanged pixels are just written back as they were.
+				// a span never leaves the rectangle it was clipped to, so this can't touch another tile's pixels
+				FloatVector depth = FloatVector.fromArray(FLOATS, depths, row + x);
+				VectorMask<Float> closer = z.lt(depth);
+				depth.blend(z, closer).intoArray(depths, row + x);
+				IntVector.fromArray(INTS, pixels, row + x).blend(colours, closer.cast(INTS)).intoArray(pixels, row + x);
+
+			}
+
+		}
+
+		// the pixels that don't fill a whole vector
+		SCALAR.fill(pixels, depths, row, x, endX, spanX, spanZ, slope, colour);
+
+	}
+
+	@Override
+	public String toString() {
+		return "vector";
+	}
+
+}
+
+// code for comp261 assignments
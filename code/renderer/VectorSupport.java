@@ -0,0 +1,35 @@
+package renderer;
+
+/**
+ * Checks once whether the kernels written with the (incubating) JDK Vector API
+ * can be used. They need java to be run with --add-modules jdk.incubator.vector,
+ * and loading one of their classes without the module throws a
+ * NoClassDefFoundError, so nothing should touch them unless AVAILABLE is true.
+ *
+ * Setting the system property renderer.vector to false turns them off even when
+ * the module is there.
+ */
+final class VectorSupport {
+
+	/** Whether the Vector API kernels can be used */
+	static final boolean AVAILABLE = check();
+
+	private VectorSupport() {}
+
+	/*
+	 * checks for the vector module before touching VectorTransform. The LinkageError is just in case
+	 * the module is there but can't be used
+	 */
+	private static boolean check() {
+		if (!Boolean.parseBoolean(System.getProperty("renderer.vector", "true"))) return false;
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+		try {
+			return VectorTransform.LANES > 1;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+}
+
+// code for comp261 assignments
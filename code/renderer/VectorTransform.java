@@ -0,0 +1,71 @@
+package renderer;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The bulk transform kernels written with the (incubating) JDK Vector API, which
+ * transform as many vertices at once as the CPU's widest float vector holds, 8
+ * with AVX2 or 16 with AVX-512.
+ *
+ * This class is only loaded by Transform once it has checked that the
+ * jdk.incubator.vector module is there (java --add-modules jdk.incubator.vector),
+ * since loading it without the module throws a NoClassDefFoundError.
+ *
+ * The arithmetic is done in the same order as the scalar loops in Transform, a
+ * multiply and an add at a time rather than fused, so the results are exactly
+ * the same whichever path is used.
+ */
+final class VectorTransform {
+
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	/** The number of vertices transformed in each iteration */
+	static final int LANES = SPECIES.length();
+
+	private VectorTransform() {}
+
+	/**
+	 * Transforms count points stored as separate x, y and z arrays
+	 *
+	 * @param m the 3x4 matrix, a row at a time
+	 * @param xs the x coordinates
+	 * @param ys the y coordinates
+	 * @param zs the z coordinates
+	 * @param outX where the new x coordinates go, which can be xs
+	 * @param outY where the new y coordinates go, which can be ys
+	 * @param outZ where the new z coordinates go, which can be zs
+	 * @param count the number of points
+	 */
+	static void multiply(float[] m, float[] xs, float[] ys, float[] zs,
+			float[] outX, float[] outY, float[] outZ, int count) {
+
+		float m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+		float m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+		float m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+
+		int i = 0;
+		for (int bound = SPECIES.loopBound(count); i < bound; i += LANES) {
+			FloatVector vx = FloatVector.fromArray(SPECIES, xs, i);
+			FloatVector vy = FloatVector.fromArray(SPECIES, ys, i);
+			FloatVector vz = FloatVector.fromArray(SPECIES, zs, i);
+
+			// the same order as m03 + (m00 * vx + m01 * vy + m02 * vz), so the rounding matches
+			vx.mul(m00).add(vy.mul(m01)).add(vz.mul(m02)).add(m03).intoArray(outX, i);
+			vx.mul(m10).add(vy.mul(m11)).add(vz.mul(m12)).add(m13).intoArray(outY, i);
+			vx.mul(m20).add(vy.mul(m21)).add(vz.mul(m22)).add(m23).intoArray(outZ, i);
+		}
+
+		// whatever is left over doesn't fill a whole vector
+		for (; i < count; i++) {
+			float vx = xs[i], vy = ys[i], vz = zs[i];
+			outX[i] = m03 + (m00 * vx + m01 * vy + m02 * vz);
+			outY[i] = m13 + (m10 * vx + m11 * vy + m12 * vz);
+			outZ[i] = m23 + (m20 * vx + m21 * vy + m22 * vz);
+		}
+
+	}
+
+}
+
+// code for comp261 assignments
@@ -11,7 +11,10 @@ import org.junit.runners.Suite.SuiteClasses;
  */
 
 @RunWith(Suite.class)
-@SuiteClasses({ EdgeListTests.class, ZBufferTests.class, PolygonHidingTests.class, ShadingTests.class, RotationTests.class })
+@SuiteClasses({ EdgeListTests.class, ZBufferTests.class, PolygonHidingTests.class, ShadingTests.class, RotationTests.class,
+		MeshBufferTests.class, RasterizerTests.class,
+		SceneLoaderTests.class, BatchRendererTests.class, RenderServiceTests.class,
+		TransformTests.class, FrameCacheTests.class })
 public class AllTests {
 
 }
@@ -0,0 +1,103 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import renderer.BatchRenderer;
+import renderer.FrameBuffer;
+import renderer.FrameWriter;
+import renderer.MeshBuffer;
+import renderer.Pipeline;
+import renderer.SceneLoader;
+
+/**
+ * Checks frames are rendered and written out without a GUI.
+ */
+public class BatchRendererTests {
+
+	@Test
+	/**
+	 * A PPM should be the header followed by the r, g, b bytes of each pixel in turn.
+	 */
+	public void testWritePPM() throws IOException {
+		FrameBuffer frameBuffer = new FrameBuffer(2, 1);
+		frameBuffer.setRGB(0, 0, 0x102030);
+		frameBuffer.setRGB(1, 0, 0xFFFFFF);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FrameWriter.writePPM(frameBuffer, out);
+
+		byte[] header = "P6\n2 1\n255\n".getBytes(StandardCharsets.US_ASCII);
+		byte[] bytes = out.toByteArray();
+		assertArrayEquals(header, Arrays.copyOf(bytes, header.length));
+		assertArrayEquals(new byte[] { 0x10, 0x20, 0x30, -1, -1, -1 }, Arrays.copyOfRange(bytes, header.length, bytes.length));
+	}
+
+	@Test
+	/**
+	 * Every frame asked for should be written, and rotating should change what is drawn.
+	 */
+	public void testRenderFrames() throws IOException {
+		File dir = Files.createTempDirectory("frames").toFile();
+		dir.deleteOnExit();
+
+		BatchRenderer.Frame[] frames = {
+			new BatchRenderer.Frame(0, 0, Color.GRAY),
+			new BatchRenderer.Frame(0, 0.5f, Color.GRAY),
+			new BatchRenderer.Frame(0, 0, Color.WHITE) };
+
+		long[] times = new BatchRenderer(false).render(
+				Pipeline.scaleScene(SceneLoader.load(new File("data", "shapes.txt"), MeshBuffer.DEFAULT_WELD_EPSILON)),
+				Arrays.asList(frames), dir, "ppm", null);
+		assertEquals(3, times.length);
+
+		byte[][] written = new byte[3][];
+		for (int f = 0; f < 3; f++) {
+			File file = new File(dir, String.format("frame%04d.ppm", f));
+			file.deleteOnExit();
+			assertTrue(file + " should have been written", file.isFile());
+			written[f] = Files.readAllBytes(file.toPath());
+		}
+
+		assertTrue("rotating should change the frame", !Arrays.equals(written[0], written[1]));
+		assertTrue("a brighter ambient light should change the frame", !Arrays.equals(written[1], written[2]));
+	}
+
+	@Test
+	/**
+	 * Every option the batch renderer knows should be accepted, but a typo or an option missing
+	 * its value should be rejected rather than ignored.
+	 */
+	public void testCheckOptions() {
+		BatchRenderer.checkOptions(new String[] { "scene.txt", "out", "--rotate", "0.1,0.2,5", "--ambient", "10,20,30",
+				"--format", "ppm", "--tiled", "--vector", "--deferred", "--smooth", "--halfspace", "--cull" }, 2);
+
+		String[][] bad = {
+			{ "scene.txt", "out", "--tiles" },
+			{ "scene.txt", "out", "--tiled", "extra" },
+			{ "scene.txt", "out", "--rotate", "0.1,0.2", "--format" },
+			{ "scene.txt", "out", "--ambient" } };
+		for (String[] args : bad) {
+			try {
+				BatchRenderer.checkOptions(args, 2);
+				fail(Arrays.toString(args) + " should have been rejected");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}
+
+// code for COMP261 assignments
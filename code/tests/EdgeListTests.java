@@ -5,6 +5,7 @@ import static org.junit.Assert.assertEquals;
 import org.junit.Test;
 
 import renderer.EdgeList;
+import renderer.MeshBuffer;
 import renderer.Pipeline;
 import renderer.Scene.Polygon;
 
@@ -113,6 +114,87 @@ public class EdgeListTests {
 		assertEquals(7.33333, el.getLeftZ(4), 1e-3);
 		assertEquals(8.33333, el.getRightZ(4), 1e-3);
 	}
+
+	@Test
+	/**
+	 * An edge list reused for smaller and bigger triangles, and for smooth and flat ones,
+	 * should end up the same as a new one each time, apart from any rows it was told not to keep.
+	 */
+	public void testReset() {
+		MeshBuffer mesh = new MeshBuffer(3);
+		mesh.setTriangle(0, new float[] { 0, 0, 0, 0, 6, 11, 7, 0, 3 }, 0x336699);
+		mesh.setTriangle(1, new float[] { 0, -5, 2, 3, 40, 8, 30, 10, 5 }, 0xFF8000);
+		mesh.setTriangle(2, new float[] { 2, 1, 0, 4, 3, 1, 6, 1, 2 }, 0x00FF00);
+		float[] vertexLights = new float[mesh.getVertexCount() * 3];
+		for (int i = 0; i < vertexLights.length; i++) vertexLights[i] = i * 10;
+
+		EdgeList reused = new EdgeList();
+		for (int t = 0; t < 3; t++) {
+			for (float[] lights : new float[][] { null, vertexLights }) {
+				EdgeList expected = lights == null ? Pipeline.computeEdgeList(mesh, t) : Pipeline.computeEdgeList(mesh, t, lights);
+				Pipeline.computeEdgeList(mesh, t, lights, reused, 0, 20);
+
+				assertEquals(Math.max(0, expected.getStartY()), reused.getStartY());
+				assertEquals(Math.min(20, expected.getEndY()), reused.getEndY());
+				assertEquals(expected.getAttributes(), reused.getAttributes());
+				for (int y = reused.getStartY(); y <= reused.getEndY(); y++) {
+					assertEquals(expected.getLeftX(y), reused.getLeftX(y), 0);
+					assertEquals(expected.getRightX(y), reused.getRightX(y), 0);
+					for (int k = 0; k < expected.getAttributes(); k++) {
+						assertEquals(expected.getLeft(y, k), reused.getLeft(y, k), 0);
+						assertEquals(expected.getRight(y, k), reused.getRight(y, k), 0);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	/**
+	 * Edge lists packed one after another into a shared array should read back the same through
+	 * another edge list, without writing over each other.
+	 */
+	public void testShared() {
+		MeshBuffer mesh = new MeshBuffer(2);
+		mesh.setTriangle(0, new float[] { 0, 0, 0, 0, 6, 11, 7, 0, 3 }, 0x336699);
+		mesh.setTriangle(1, new float[] { 0, -5, 2, 3, 40, 8, 30, 10, 5 }, 0xFF8000);
+
+		// each one needs a row for every y from startY to endY
+		EdgeList first = Pipeline.computeEdgeList(mesh, 0), second = Pipeline.computeEdgeList(mesh, 1);
+		int stride = EdgeList.getStride(EdgeList.FLAT);
+		int firstSize = (first.getEndY() - first.getStartY() + 1) * stride;
+		float[] rows = new float[firstSize + (second.getEndY() - second.getStartY() + 1) * stride];
+
+		EdgeList writer = new EdgeList();
+		writer.share(rows, 0);
+		Pipeline.computeEdgeList(mesh, 0, null, writer, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		writer.share(rows, firstSize);
+		Pipeline.computeEdgeList(mesh, 1, null, writer, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+		EdgeList reader = new EdgeList();
+		int offset = 0;
+		for (EdgeList expected : new EdgeList[] { first, second }) {
+			reader.share(rows, offset);
+			reader.reset(expected.getStartY(), expected.getEndY(), EdgeList.FLAT);
+			for (int y = expected.getStartY(); y <= expected.getEndY(); y++) {
+				assertEquals(expected.getLeftX(y), reader.getLeftX(y), 0);
+				assertEquals(expected.getLeftZ(y), reader.getLeftZ(y), 0);
+				assertEquals(expected.getRightX(y), reader.getRightX(y), 0);
+				assertEquals(expected.getRightZ(y), reader.getRightZ(y), 0);
+			}
+			offset = firstSize;
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	/**
+	 * A shared edge list can't grow the array, so it has to say when it doesn't fit.
+	 */
+	public void testSharedTooSmall() {
+		EdgeList eL = new EdgeList();
+		eL.share(new float[10], 4);
+		eL.reset(0, 5, EdgeList.FLAT);
+	}
 }
 
 // code for COMP261 assignments
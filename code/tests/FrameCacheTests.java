@@ -0,0 +1,105 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import renderer.FrameCache;
+import renderer.MeshBuffer;
+import renderer.Pipeline;
+import renderer.Scene;
+import renderer.SceneRenderer;
+import renderer.Vector3D;
+
+/**
+ * Checks that the last frame is only reused when nothing that changes the picture has changed.
+ */
+public class FrameCacheTests {
+
+	private static final Color AMBIENT = new Color(100, 100, 100);
+
+	private static Scene scene() {
+		MeshBuffer mesh = new MeshBuffer(2);
+		mesh.setTriangle(0, new float[] { 10, 5, 5, 2, 3, 2, 9, 5, 4 }, 0xFF0000);
+		mesh.setTriangle(1, new float[] { -4, 1, 7, 8, -2, 3, 0, 6, -5 }, 0x00FF00);
+		Map<Vector3D, Color> lights = new LinkedHashMap<>();
+		lights.put(new Vector3D(0, 0, -1), Color.WHITE);
+		return Pipeline.scaleScene(Scene.fromMesh(mesh, lights));
+	}
+
+	/**
+	 * Draws the scene the way Renderer does, centring it first and only drawing if the cache misses
+	 */
+	private static BufferedImage draw(FrameCache cache, SceneRenderer renderer, Scene scene, Color ambient) {
+		Pipeline.translateScene(scene);
+		BufferedImage image = cache.get(scene, ambient);
+		if (image == null) {
+			image = renderer.render(scene, ambient);
+			cache.put(scene, ambient, image);
+		}
+		return image;
+	}
+
+	@Test
+	/**
+	 * Repainting without changing anything, including centring the scene again, should reuse the last frame.
+	 */
+	public void testUnchangedSceneReused() {
+		FrameCache cache = new FrameCache();
+		SceneRenderer renderer = new SceneRenderer(200, 200);
+		Scene scene = scene();
+
+		BufferedImage first = draw(cache, renderer, scene, AMBIENT);
+		int version = scene.getTransformVersion();
+		draw(cache, renderer, scene, AMBIENT);
+
+		assertSame(first, cache.get(scene, new Color(100, 100, 100)));
+		assertEquals(version, scene.getTransformVersion());
+	}
+
+	@Test
+	/**
+	 * Rotating, changing the lights, the ambient light or the model, or drawing another scene, should all draw again.
+	 */
+	public void testChangesDrawAgain() {
+		FrameCache cache = new FrameCache();
+		SceneRenderer renderer = new SceneRenderer(200, 200);
+		Scene scene = scene();
+
+		draw(cache, renderer, scene, AMBIENT);
+		Pipeline.rotateScene(scene, 0.1f, 0);
+		assertNull(cache.get(scene, AMBIENT));
+
+		draw(cache, renderer, scene, AMBIENT);
+		scene.addLight(new Vector3D(1, 0, 0), Color.RED);
+		assertNull(cache.get(scene, AMBIENT));
+
+		draw(cache, renderer, scene, AMBIENT);
+		scene.removeLastLight();
+		assertNull(cache.get(scene, AMBIENT));
+
+		draw(cache, renderer, scene, AMBIENT);
+		assertNull(cache.get(scene, new Color(101, 100, 100)));
+
+		scene.getModel().getColours()[0] = 0x0000FF;
+		scene.modelChanged();
+		assertNull(cache.get(scene, AMBIENT));
+
+		draw(cache, renderer, scene, AMBIENT);
+		assertNotNull(cache.get(scene, AMBIENT));
+		assertNull(cache.get(scene(), AMBIENT));
+
+		cache.clear();
+		assertNull(cache.get(scene, AMBIENT));
+	}
+}
+
+// code for COMP261 assignments
@@ -0,0 +1,127 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import renderer.MeshBuffer;
+import renderer.Scene;
+import renderer.Scene.Polygon;
+import renderer.Vector3D;
+
+public class MeshBufferTests {
+
+	@Test
+	/**
+	 * Polygons passed into a Scene end up stored in its mesh, in order.
+	 */
+	public void testPolygonsCopiedIntoMesh() {
+		List<Polygon> polys = new ArrayList<>();
+		polys.add(new Polygon(new float[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 }, new int[] { 10, 20, 30 }));
+		polys.add(new Polygon(new float[] { 9, 8, 7, 6, 5, 4, 3, 2, 1 }, new int[] { 255, 0, 128 }));
+
+		Scene scene = new Scene(polys, new LinkedHashMap<Vector3D, Color>());
+		MeshBuffer mesh = scene.getMesh();
+
+		assertEquals(2, mesh.getTriangleCount());
+		assertEquals(4, mesh.getVertices()[mesh.offset(0, 1)], 1e-5);
+		assertEquals(9, mesh.getVertices()[mesh.offset(1, 0)], 1e-5);
+		assertEquals(0x0A141E, mesh.getColours()[0]);
+		assertEquals(new Color(255, 0, 128), scene.getPolygons().get(1).getReflectance());
+	}
+
+	@Test
+	/**
+	 * Changing the mesh shows up through the polygons, since they are just a view over it.
+	 */
+	public void testPolygonsViewMesh() {
+		Polygon p = new Polygon(new float[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 }, new int[] { 0, 0, 0 });
+		List<Polygon> polys = new ArrayList<>();
+		polys.add(p);
+
+		Scene scene = new Scene(polys, new LinkedHashMap<Vector3D, Color>());
+		scene.getMesh().setVertex(0, 2, -1, -2, -3);
+
+		assertEquals(new Vector3D(-1, -2, -3), p.getVertices()[2]);
+		assertEquals(new Vector3D(-1, -2, -3), scene.getPolygons().get(0).getVertices()[2]);
+		assertEquals(new Vector3D(1, 2, 3), scene.getPolygons().get(0).getVertices()[0]);
+	}
+
+	@Test
+	/**
+	 * Two triangles sharing an edge should end up with four vertices, and corners
+	 * that are only nearly the same get welded when they're within epsilon.
+	 */
+	public void testWeldSharedVertices() {
+		float[] corners = new float[] { 0, 0, 0, 1, 0, 0, 0, 1, 0,
+										1, 0, 0, 1, 1, 0, 0.000001f, 1, 0 };
+		int[] cols = new int[] { 0, 0 };
+
+		MeshBuffer welded = MeshBuffer.weld(corners, cols, 1e-5f);
+		assertEquals(2, welded.getTriangleCount());
+		assertEquals(4, welded.getVertexCount());
+		assertEquals(welded.getIndices()[1], welded.getIndices()[3]);
+		assertEquals(welded.getIndices()[2], welded.getIndices()[5]);
+		assertEquals(new Vector3D(1, 1, 0), welded.getVertex(1, 1));
+
+		// with an epsilon of 0 only the exact match is welded
+		MeshBuffer exact = MeshBuffer.weld(corners, cols, 0);
+		assertEquals(5, exact.getVertexCount());
+	}
+
+	@Test
+	/**
+	 * The normals should be the unit (v2-v1) x (v3-v2), be worked out again when a
+	 * vertex is moved, and be (0, 0, 0) for a triangle with no area.
+	 */
+	public void testNormals() {
+		MeshBuffer mesh = new MeshBuffer(2);
+		mesh.setTriangle(0, new float[] { 0, 0, 0, 2, 0, 0, 2, 3, 0 }, 0);
+		mesh.setTriangle(1, new float[] { 1, 1, 1, 2, 2, 2, 3, 3, 3 }, 0);
+
+		assertArrayEquals(new float[] { 0, 0, 1, 0, 0, 0 }, mesh.getNormals(), 1e-6f);
+
+		// tips the first triangle over so it faces along x
+		mesh.setVertex(0, 1, 0, 0, 2);
+		mesh.setVertex(0, 2, 0, 3, 2);
+		assertArrayEquals(new float[] { -1, 0, 0 }, Arrays.copyOf(mesh.getNormals(), 3), 1e-6f);
+	}
+
+	@Test
+	/**
+	 * The normal of a vertex should be the unit average of the normals of the triangles
+	 * using it, so a vertex on a fold between two triangles points half way between them.
+	 */
+	public void testVertexNormals() {
+		float[] corners = new float[] { 0, 0, 0, 2, 0, 0, 2, 3, 0,
+										0, 0, 0, 2, 3, 0, 0, 3, -3 };
+		MeshBuffer mesh = MeshBuffer.weld(corners, new int[] { 0, 0 }, 0);
+		assertEquals(4, mesh.getVertexCount());
+
+		float[] faces = mesh.getNormals(), vertices = mesh.getVertexNormals();
+
+		// the first corner is shared, so it's the average of both
+		float x = faces[0] + faces[3], y = faces[1] + faces[4], z = faces[2] + faces[5];
+		float mag = (float) Math.sqrt(x * x + y * y + z * z);
+		int shared = mesh.offset(0, 0);
+		assertArrayEquals(new float[] { x / mag, y / mag, z / mag }, Arrays.copyOfRange(vertices, shared, shared + 3), 1e-6f);
+
+		// the second corner is only in the first triangle, and the last only in the second
+		int first = mesh.offset(0, 1), second = mesh.offset(1, 2);
+		assertArrayEquals(Arrays.copyOf(faces, 3), Arrays.copyOfRange(vertices, first, first + 3), 1e-6f);
+		assertArrayEquals(Arrays.copyOfRange(faces, 3, 6), Arrays.copyOfRange(vertices, second, second + 3), 1e-6f);
+
+		// flattening the fold should make them all point along z
+		mesh.setVertex(1, 2, 0, 3, 0);
+		assertArrayEquals(new float[] { 0, 0, 1 }, Arrays.copyOfRange(mesh.getVertexNormals(), shared, shared + 3), 1e-6f);
+	}
+}
+
+// code for COMP261 assignments
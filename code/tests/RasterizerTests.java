@@ -0,0 +1,332 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import renderer.DepthBuffer;
+import renderer.EdgeFunctionRasterizer;
+import renderer.EdgeList;
+import renderer.FrameBuffer;
+import renderer.GeometryStage;
+import renderer.HiZBuffer;
+import renderer.LightArray;
+import renderer.MeshBuffer;
+import renderer.Pipeline;
+import renderer.Scene;
+import renderer.SceneRenderer;
+import renderer.SpanKernel;
+import renderer.TileRasterizer;
+import renderer.Vector3D;
+
+/**
+ * Checks the different ways of drawing a mesh all give the same image as
+ * drawing the polygons one at a time.
+ */
+public class RasterizerTests {
+
+	private static final int SIZE = 100;
+
+	/**
+	 * Makes a mesh of random, overlapping triangles, some of which go off screen
+	 */
+	static MeshBuffer randomMesh(int triangles, long seed) {
+		Random rand = new Random(seed);
+		float[] corners = new float[triangles * 9];
+		int[] colours = new int[triangles];
+		for (int i = 0; i < corners.length; i++)
+			corners[i] = rand.nextFloat() * (SIZE + 20) - 10;
+		for (int i = 0; i < triangles; i++)
+			colours[i] = rand.nextInt(0x1000000);
+		return MeshBuffer.weld(corners, colours, 0);
+	}
+
+	static Map<Vector3D, Color> lights() {
+		Map<Vector3D, Color> lights = new LinkedHashMap<>();
+		lights.put(new Vector3D(0.3f, -0.2f, -1f), new Color(200, 180, 160));
+		return lights;
+	}
+
+	/**
+	 * Draws the mesh the simple way, one polygon at a time
+	 */
+	static void drawSequential(MeshBuffer mesh, FrameBuffer fb, DepthBuffer db) {
+		Color ambient = new Color(40, 40, 40);
+		LightArray lights = new LightArray(lights());
+		for (int i = 0; i < mesh.getTriangleCount(); i++) {
+			if (!Pipeline.isHidden(mesh, i)) {
+				int col = Pipeline.getShading(mesh, i, lights, ambient);
+				EdgeList eL = Pipeline.computeEdgeList(mesh, i);
+				Pipeline.computeZBuffer(fb, db, eL, col);
+			}
+		}
+	}
+
+	@Test
+	/**
+	 * Tiles smaller than most of the triangles, so most triangles are split over
+	 * several tiles, and a size that doesn't divide the screen evenly.
+	 */
+	public void testTiledMatchesSequential() {
+		MeshBuffer mesh = randomMesh(300, 261);
+
+		FrameBuffer expected = new FrameBuffer(SIZE, SIZE);
+		DepthBuffer expectedDepth = new DepthBuffer(SIZE, SIZE);
+		expected.clear();
+		drawSequential(mesh, expected, expectedDepth);
+
+		FrameBuffer actual = new FrameBuffer(SIZE, SIZE);
+		DepthBuffer actualDepth = new DepthBuffer(SIZE, SIZE);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		GeometryStage geometry = new GeometryStage(SIZE, SIZE, 16, pool);
+		TileRasterizer tiles = new TileRasterizer(SIZE, SIZE, 7, pool);
+
+		// twice, to check nothing is left over from the frame before
+		for (int frame = 0; frame < 2; frame++) {
+			actual.clear();
+			actualDepth.clear();
+			geometry.process(mesh, new LightArray(lights()), new Color(40, 40, 40));
+			tiles.render(geometry, actual, actualDepth);
+
+			assertArrayEquals(expected.getPixels(), actual.getPixels());
+			assertArrayEquals(expectedDepth.getDepths(), actualDepth.getDepths(), 0);
+		}
+	}
+
+	@Test
+	/**
+	 * Deferred shading should draw exactly the same picture, both when the polygons are
+	 * drawn again and when only the lights or ambient light have changed.
+	 */
+	public void testDeferredMatchesForward() {
+		Scene scene = Scene.fromMesh(randomMesh(300, 262), lights());
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		SceneRenderer forward = new SceneRenderer(SIZE, SIZE, pool);
+		SceneRenderer deferred = new SceneRenderer(SIZE, SIZE, pool), deferredTiled = new SceneRenderer(SIZE, SIZE, pool);
+		deferred.setDeferred(true);
+		deferredTiled.setDeferred(true);
+		deferredTiled.setTiled(true);
+
+		Color ambient = new Color(40, 40, 40);
+		for (int frame = 0; frame < 4; frame++) {
+			if (frame == 1) ambient = new Color(90, 20, 60);
+			if (frame == 2) scene.addLight(new Vector3D(-0.5f, 0.4f, -0.3f), new Color(30, 160, 90));
+			if (frame == 3) Pipeline.rotateScene(scene, 0.05f, -0.1f);
+
+			int[] expected = forward.render(scene, ambient).getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+			assertArrayEquals(expected, deferred.render(scene, ambient).getRGB(0, 0, SIZE, SIZE, null, 0, SIZE));
+			assertArrayEquals(expected, deferredTiled.render(scene, ambient).getRGB(0, 0, SIZE, SIZE, null, 0, SIZE));
+			assertArrayEquals(forward.getDepthBuffer().getDepths(), deferred.getDepthBuffer().getDepths(), 0);
+		}
+	}
+
+	@Test
+	/**
+	 * Smooth shading drawn in tiles should give the same picture as working out the light
+	 * at each vertex and drawing the smooth edge lists one at a time.
+	 */
+	public void testSmoothTiledMatchesSequential() {
+		MeshBuffer mesh = randomMesh(300, 263);
+		LightArray lights = new LightArray(lights());
+		Color ambient = new Color(40, 40, 40);
+
+		float[] vertexLights = new float[mesh.getVertexCount() * 3];
+		Pipeline.getVertexLights(mesh, lights, ambient, vertexLights, 0, mesh.getVertexCount());
+
+		FrameBuffer expected = new FrameBuffer(SIZE, SIZE);
+		DepthBuffer expectedDepth = new DepthBuffer(SIZE, SIZE);
+		expected.clear();
+		for (int i = 0; i < mesh.getTriangleCount(); i++)
+			if (!Pipeline.isHidden(mesh, i))
+				Pipeline.computeZBuffer(expected, expectedDepth, Pipeline.computeEdgeList(mesh, i, vertexLights), 0);
+
+		FrameBuffer actual = new FrameBuffer(SIZE, SIZE);
+		DepthBuffer actualDepth = new DepthBuffer(SIZE, SIZE);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		GeometryStage geometry = new GeometryStage(SIZE, SIZE, 16, pool);
+		TileRasterizer tiles = new TileRasterizer(SIZE, SIZE, 7, pool);
+
+		actual.clear();
+		actualDepth.clear();
+		geometry.processSmooth(mesh, lights, ambient);
+		tiles.render(geometry, actual, actualDepth);
+
+		assertArrayEquals(expected.getPixels(), actual.getPixels());
+		assertArrayEquals(expectedDepth.getDepths(), actualDepth.getDepths(), 0);
+	}
+
+	@Test
+	/**
+	 * A jiggled grid of triangles covering the whole screen, going both ways round, should
+	 * have every pixel drawn by exactly one triangle with edge functions: the top-left rule
+	 * means no cracks along the shared edges and no pixels drawn twice.
+	 */
+	public void testHalfSpaceSharedEdges() {
+		Random rand = new Random(264);
+		int cells = 9;
+		float step = (SIZE + 40) / (float) cells;
+		float[][] gridX = new float[cells + 1][cells + 1], gridY = new float[cells + 1][cells + 1];
+		for (int j = 0; j <= cells; j++) {
+			for (int i = 0; i <= cells; i++) {
+				// the outside of the grid is left straight so it covers the screen
+				boolean inside = i > 0 && j > 0 && i < cells && j < cells;
+				gridX[j][i] = -20 + i * step + (inside ? rand.nextFloat() * 8 - 4 : 0);
+				gridY[j][i] = -20 + j * step + (inside ? rand.nextFloat() * 8 - 4 : 0);
+			}
+		}
+		// a few corners right on pixel centres, and an edge lying exactly along a row of them
+		gridX[3][3] = Math.round(gridX[3][3]) + 0.5f;
+		gridY[3][3] = Math.round(gridY[3][3]) + 0.5f;
+		gridY[5][4] = gridY[5][5] = Math.round(-20 + 5 * step) + 0.5f;
+
+		float[] corners = new float[cells * cells * 18];
+		int n = 0;
+		for (int j = 0; j < cells; j++) {
+			for (int i = 0; i < cells; i++) {
+				float[][] quad = { { gridX[j][i], gridY[j][i] }, { gridX[j][i + 1], gridY[j][i + 1] },
+								   { gridX[j + 1][i + 1], gridY[j + 1][i + 1] }, { gridX[j + 1][i], gridY[j + 1][i] } };
+				int[] order = (i + j) % 2 == 0 ? new int[] { 0, 1, 2, 0, 2, 3 } : new int[] { 0, 2, 1, 0, 3, 2 };
+				for (int k : order) {
+					corners[n++] = quad[k][0];
+					corners[n++] = quad[k][1];
+					corners[n++] = 10;
+				}
+			}
+		}
+		MeshBuffer mesh = MeshBuffer.weld(corners, new int[corners.length / 9], 0);
+
+		int[] count = new int[SIZE * SIZE];
+		for (int t = 0; t < mesh.getTriangleCount(); t++) {
+			int[] pixels = new int[SIZE * SIZE];
+			float[] depths = new float[SIZE * SIZE];
+			Arrays.fill(depths, Float.POSITIVE_INFINITY);
+			EdgeFunctionRasterizer.draw(pixels, depths, SIZE, mesh, t, null, 1, 0, 0, SIZE, SIZE, SpanKernel.SCALAR);
+			for (int i = 0; i < pixels.length; i++) count[i] += pixels[i];
+		}
+
+		int[] once = new int[SIZE * SIZE];
+		Arrays.fill(once, 1);
+		assertArrayEquals(once, count);
+	}
+
+	@Test
+	/**
+	 * Pixel centres right on the top or left edge of a triangle are drawn, and ones right
+	 * on the bottom or right edges aren't, whichever way round the corners are given.
+	 */
+	public void testHalfSpaceTopLeftRule() {
+		float[][] orders = { { 0.5f, 0.5f, 0, 4.5f, 0.5f, 0, 0.5f, 4.5f, 0 }, { 0.5f, 0.5f, 0, 0.5f, 4.5f, 0, 4.5f, 0.5f, 0 } };
+		for (float[] corners : orders) {
+			MeshBuffer mesh = MeshBuffer.weld(corners, new int[1], 0);
+			int[] pixels = new int[SIZE * SIZE];
+			float[] depths = new float[SIZE * SIZE];
+			Arrays.fill(depths, Float.POSITIVE_INFINITY);
+			EdgeFunctionRasterizer.draw(pixels, depths, SIZE, mesh, 0, null, 1, 0, 0, SIZE, SIZE, SpanKernel.SCALAR);
+
+			// the top row and left column are drawn, and the diagonal (a bottom right edge) isn't
+			for (int y = 0; y < 5; y++)
+				for (int x = 0; x < 5; x++)
+					assertEquals("pixel " + x + ", " + y, x + y < 4 ? 1 : 0, pixels[y * SIZE + x]);
+		}
+	}
+
+	@Test
+	/**
+	 * Drawing with edge functions in tiles, flat, smooth and deferred, should give the same
+	 * picture as drawing them one at a time.
+	 */
+	public void testHalfSpaceTiledMatchesSequential() {
+		Scene scene = Scene.fromMesh(randomMesh(300, 265), lights());
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Color ambient = new Color(40, 40, 40);
+
+		for (int mode = 0; mode < 3; mode++) {
+			SceneRenderer sequential = new SceneRenderer(SIZE, SIZE, pool), tiled = new SceneRenderer(SIZE, SIZE, pool);
+			for (SceneRenderer renderer : new SceneRenderer[] { sequential, tiled }) {
+				renderer.setHalfSpace(true);
+				renderer.setSmooth(mode == 1);
+				renderer.setDeferred(mode == 2);
+			}
+			tiled.setTiled(true);
+
+			int[] expected = sequential.render(scene, ambient).getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+			assertArrayEquals(expected, tiled.render(scene, ambient).getRGB(0, 0, SIZE, SIZE, null, 0, SIZE));
+			assertArrayEquals(sequential.getDepthBuffer().getDepths(), tiled.getDepthBuffer().getDepths(), 0);
+		}
+	}
+
+	/**
+	 * The pyramid should only rule out rectangles where everything drawn is at least as close
+	 */
+	@Test
+	public void testHiZOccluded() {
+		DepthBuffer depthBuffer = new DepthBuffer(SIZE, SIZE);
+		HiZBuffer hiZ = new HiZBuffer(depthBuffer);
+		assertEquals(3, hiZ.getLevelCount());
+
+		// nothing has been drawn yet
+		assertFalse(hiZ.isOccluded(0, 0, SIZE - 1, SIZE - 1, -1000));
+
+		// draws a square at depth 5 lined up with the cells, checking it first so the cells get worked out before it changes
+		assertFalse(hiZ.isOccluded(8, 8, 63, 63, 10));
+		for (int y = 8; y < 64; y++)
+			Arrays.fill(depthBuffer.getDepths(), y * SIZE + 8, y * SIZE + 64, 5);
+		hiZ.markDrawn(8, 8, 63, 63);
+
+		assertTrue(hiZ.isOccluded(8, 8, 63, 63, 10));
+		assertTrue(hiZ.isOccluded(20, 30, 40, 50, 5));
+		assertFalse(hiZ.isOccluded(20, 30, 40, 50, 1));
+		// partly over pixels that haven't been drawn
+		assertFalse(hiZ.isOccluded(50, 50, 70, 70, 10));
+		assertFalse(hiZ.isOccluded(7, 8, 63, 63, 10));
+
+		// not a number can't be compared with anything, so it never counts as hidden
+		assertFalse(hiZ.isOccluded(20, 30, 40, 50, Float.NaN));
+		assertFalse(hiZ.isOccluded(8, 8, 63, 63, Float.NaN));
+
+		hiZ.clear();
+		depthBuffer.clear();
+		assertFalse(hiZ.isOccluded(20, 30, 40, 50, 10));
+		assertFalse(hiZ.isOccluded(20, 30, 40, 50, Float.NaN));
+	}
+
+	/**
+	 * Culling hidden polygons shouldn't change the picture or the depths, however the polygons are drawn
+	 */
+	@Test
+	public void testOcclusionCullingMatches() {
+		Scene scene = Scene.fromMesh(randomMesh(300, 266), lights());
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Color ambient = new Color(40, 40, 40);
+
+		for (int mode = 0; mode < 8; mode++) {
+			SceneRenderer plain = new SceneRenderer(SIZE, SIZE, pool), culled = new SceneRenderer(SIZE, SIZE, pool);
+			for (SceneRenderer renderer : new SceneRenderer[] { plain, culled }) {
+				renderer.setTiled((mode & 1) != 0);
+				renderer.setHalfSpace((mode & 2) != 0);
+				renderer.setDeferred((mode & 4) != 0);
+			}
+			culled.setOcclusionCulling(true);
+
+			// twice, so the second frame starts from the cleared pyramid
+			for (int frame = 0; frame < 2; frame++) {
+				int[] expected = plain.render(scene, ambient).getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+				assertArrayEquals(expected, culled.render(scene, ambient).getRGB(0, 0, SIZE, SIZE, null, 0, SIZE));
+				assertArrayEquals(plain.getDepthBuffer().getDepths(), culled.getDepthBuffer().getDepths(), 0);
+			}
+		}
+	}
+}
+
+// code for COMP261 assignments
@@ -0,0 +1,94 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import renderer.RenderService;
+
+/**
+ * Checks the render service answers every job, and that jobs on the same
+ * scene don't affect each other.
+ */
+public class RenderServiceTests {
+
+	@Test
+	public void testJobsAnswered() throws IOException, InterruptedException {
+		File dir = Files.createTempDirectory("service").toFile();
+		dir.deleteOnExit();
+		File[] frames = new File[6];
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = new File(dir, "frame" + i + ".ppm");
+			frames[i].deleteOnExit();
+		}
+
+		// the same rotation is asked for three times, between other rotations of the same scene
+		StringBuilder jobs = new StringBuilder();
+		for (int i = 0; i < frames.length; i++)
+			jobs.append("render data/monkey.txt ").append(frames[i]).append(" rotate 0,").append(i % 2 == 0 ? "0.5" : "1.5")
+				.append(" ambient 40,40,40\n");
+		jobs.append("render\n");
+		jobs.append("quit\n");
+
+		RenderService service = new RenderService(3, 1, false);
+		StringWriter answers = new StringWriter();
+		service.serve(new StringReader(jobs.toString()), answers);
+		service.shutdown();
+
+		String[] lines = answers.toString().trim().split("\\R");
+		assertEquals(answers.toString(), 7, lines.length);
+		assertEquals(6, Arrays.stream(lines).filter(l -> l.startsWith("ok ")).count());
+		assertEquals(1, Arrays.stream(lines).filter(l -> l.startsWith("error ")).count());
+
+		// the cached scene should never be rotated, so the same job always gives the same frame
+		byte[] first = Files.readAllBytes(frames[0].toPath());
+		assertArrayEquals(first, Files.readAllBytes(frames[2].toPath()));
+		assertArrayEquals(first, Files.readAllBytes(frames[4].toPath()));
+		assertArrayEquals(Files.readAllBytes(frames[1].toPath()), Files.readAllBytes(frames[5].toPath()));
+		assertTrue(!Arrays.equals(first, Files.readAllBytes(frames[1].toPath())));
+	}
+
+	@Test
+	public void testScenesTakeTurns() throws IOException, InterruptedException {
+		File dir = Files.createTempDirectory("service").toFile();
+		dir.deleteOnExit();
+		File[] frames = new File[4];
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = new File(dir, "frame" + i + ".ppm");
+			frames[i].deleteOnExit();
+		}
+
+		// one worker draws two scenes in turn, so it has to keep a view of each
+		String[] scenes = { "data/monkey.txt", "data/ball.txt" };
+		StringBuilder jobs = new StringBuilder();
+		for (int i = 0; i < frames.length; i++)
+			jobs.append("render ").append(scenes[i % 2]).append(' ').append(frames[i]).append(" rotate 0,0.5\n");
+		jobs.append("quit\n");
+
+		RenderService service = new RenderService(1, 1, false);
+		StringWriter answers = new StringWriter();
+		service.serve(new StringReader(jobs.toString()), answers);
+		service.shutdown();
+
+		String[] lines = answers.toString().trim().split("\\R");
+		assertEquals(answers.toString(), 4, Arrays.stream(lines).filter(l -> l.startsWith("ok ")).count());
+		assertArrayEquals(Files.readAllBytes(frames[0].toPath()), Files.readAllBytes(frames[2].toPath()));
+		assertArrayEquals(Files.readAllBytes(frames[1].toPath()), Files.readAllBytes(frames[3].toPath()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadJobRejected() {
+		RenderService.Job.parse("render scene.txt out.png rotate 1");
+	}
+}
+
+// code for COMP261 assignments
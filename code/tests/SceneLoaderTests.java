@@ -0,0 +1,242 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import renderer.BinaryScene;
+import renderer.MeshBuffer;
+import renderer.Scene;
+import renderer.SceneLoader;
+import renderer.SceneParser;
+import renderer.Vector3D;
+
+/**
+ * Checks the scene files are all read the same way.
+ */
+public class SceneLoaderTests {
+
+	/**
+	 * Writes a small text scene, two triangles sharing an edge, to a temporary file
+	 */
+	static File textScene() throws IOException {
+		File file = File.createTempFile("scene", ".txt");
+		file.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(file)) {
+			out.println("2");
+			out.println("255,0,10,0.5,1.25,-3,4,5,6,-7.5,8,9");
+			out.println("1,2,3,4,5,6,-7.5,8,9,10,11,12");
+			out.println("0.1,-0.2,-0.97");
+		}
+		return file;
+	}
+
+	@Test
+	/**
+	 * Checks the text format is read into the mesh and light properly.
+	 */
+	public void testLoadText() throws IOException {
+		Scene scene = SceneLoader.load(textScene(), MeshBuffer.DEFAULT_WELD_EPSILON);
+		MeshBuffer mesh = scene.getMesh();
+
+		assertEquals(2, mesh.getTriangleCount());
+		assertEquals(4, mesh.getVertexCount());
+		assertArrayEquals(new int[] { 0xFF000A, 0x010203 }, mesh.getColours());
+		assertEquals(new Vector3D(0.5f, 1.25f, -3), mesh.getVertex(0, 0));
+		assertEquals(new Vector3D(10, 11, 12), mesh.getVertex(1, 2));
+
+		List<Vector3D> lights = new ArrayList<>(scene.getLights().keySet());
+		assertEquals(1, lights.size());
+		assertEquals(new Vector3D(0.1f, -0.2f, -0.97f), lights.get(0));
+		assertEquals(Color.WHITE, scene.getLights().get(lights.get(0)));
+	}
+
+	@Test
+	/**
+	 * A scene written in the binary format should read back exactly the same.
+	 */
+	public void testBinaryRoundTrip() throws IOException {
+		Scene text = SceneLoader.load(textScene(), MeshBuffer.DEFAULT_WELD_EPSILON);
+		text.addLight(new Vector3D(1, 0, 0), new Color(10, 20, 30));
+
+		File bin = File.createTempFile("scene", BinaryScene.EXTENSION);
+		bin.deleteOnExit();
+		BinaryScene.write(text, bin);
+		Scene binary = SceneLoader.load(bin, MeshBuffer.DEFAULT_WELD_EPSILON);
+
+		assertArrayEquals(text.getMesh().getVertices(), binary.getMesh().getVertices(), 0);
+		assertArrayEquals(text.getMesh().getIndices(), binary.getMesh().getIndices());
+		assertArrayEquals(text.getMesh().getColours(), binary.getMesh().getColours());
+		assertEquals(new ArrayList<>(text.getLights().keySet()), new ArrayList<>(binary.getLights().keySet()));
+		assertEquals(new ArrayList<>(text.getLights().values()), new ArrayList<>(binary.getLights().values()));
+	}
+
+	@Test(expected = IOException.class)
+	/**
+	 * A text file given a binary extension should be rejected, rather than read as garbage.
+	 */
+	public void testBinaryRejectsText() throws IOException {
+		File bin = File.createTempFile("scene", BinaryScene.EXTENSION);
+		bin.deleteOnExit();
+		textScene().renameTo(bin);
+		BinaryScene.read(bin);
+	}
+
+	@Test
+	/**
+	 * The byte parser should read every float to exactly the same value as Float.parseFloat.
+	 */
+	public void testParserMatchesParseFloat() throws IOException {
+		Random random = new Random(261);
+		int count = 2000;
+		String[] numbers = new String[count * 9];
+
+		StringBuilder text = new StringBuilder().append(count).append('\n');
+		for (int i = 0; i < count; i++) {
+			text.append("1,2,3");
+			for (int j = 0; j < 9; j++) {
+				// a mix of short, long, tiny and huge numbers, with and without exponents
+				switch (random.nextInt(4)) {
+				case 0: numbers[i * 9 + j] = Float.toString((random.nextFloat() - 0.5f) * 400); break;
+				case 1: numbers[i * 9 + j] = String.format("%.6f", (random.nextDouble() - 0.5) * 400); break;
+				case 2: numbers[i * 9 + j] = Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20)); break;
+				default: numbers[i * 9 + j] = Integer.toString(random.nextInt(1000) - 500);
+				}
+				text.append(',').append(numbers[i * 9 + j]);
+			}
+			text.append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+
+		SceneParser parser = new SceneParser(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.US_ASCII)));
+		float[] positions = new float[parser.parseHeader() * 9];
+		parser.parseTriangles(positions, new int[count], 0, count);
+
+		for (int i = 0; i < numbers.length; i++)
+			assertEquals(numbers[i], Float.floatToIntBits(Float.parseFloat(numbers[i])), Float.floatToIntBits(positions[i]));
+	}
+
+	@Test
+	/**
+	 * Loading in parallel should give exactly the same scene as loading on one
+	 * thread, even with chunks so small that most hold only a line or two.
+	 */
+	public void testParallelMatchesSequential() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (String name : new String[] { "monkey.txt", "shapes.txt", "car.txt" }) {
+				File file = new File("data", name);
+				Scene sequential = SceneLoader.loadText(file, MeshBuffer.DEFAULT_WELD_EPSILON);
+				for (int chunkBytes : new int[] { 50, 333, 4096 }) {
+					Scene parallel = SceneLoader.loadTextParallel(file, MeshBuffer.DEFAULT_WELD_EPSILON, pool, chunkBytes);
+					assertArrayEquals(name, sequential.getMesh().getVertices(), parallel.getMesh().getVertices(), 0);
+					assertArrayEquals(name, sequential.getMesh().getIndices(), parallel.getMesh().getIndices());
+					assertArrayEquals(name, sequential.getMesh().getColours(), parallel.getMesh().getColours());
+					assertEquals(name, new ArrayList<>(sequential.getLights().keySet()), new ArrayList<>(parallel.getLights().keySet()));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	/**
+	 * A malformed line in a chunk parsed in parallel should still be reported with its line number in the file.
+	 */
+	public void testParallelReportsLine() throws IOException {
+		File file = File.createTempFile("scene", ".txt");
+		file.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(file)) {
+			out.println("100");
+			for (int i = 0; i < 100; i++)
+				out.println(i == 70 ? "1,2,3,4,5,6,7,8,9,10,11" : "1,2,3,4,5,6,7,8,9,10,11,12");
+			out.println("0,0,1");
+		}
+		try {
+			SceneLoader.loadTextParallel(file, 0, ForkJoinPool.commonPool(), 100);
+			fail("the bad line should have been rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("line 72:"));
+		}
+	}
+
+	@Test
+	/**
+	 * A malformed line should be reported with its line number.
+	 */
+	public void testParserReportsLine() {
+		String text = "2\n1,2,3,4,5,6,7,8,9,10,11,12\n1,2,3,4,5,6,7,8,x,10,11,12\n0,0,1\n";
+		try {
+			new SceneParser(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))).parse(0);
+			fail("the bad line should have been rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("line 3:"));
+		}
+	}
+
+	@Test
+	/**
+	 * A polygon count that's negative, too big for the arrays, or too big for the file should be
+	 * reported as a problem on line 1, rather than overflowing or running out of memory.
+	 */
+	public void testBadPolygonCount() throws IOException {
+		String[] counts = { "-5", "2000000000", "300" };
+		for (String count : counts) {
+			String text = count + "\n1,2,3,4,5,6,7,8,9,10,11,12\n0,0,1\n";
+			byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+			try {
+				new SceneParser(new ByteArrayInputStream(bytes), bytes.length).parse(0);
+				fail(count + " polygons should have been rejected");
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("line 1:"));
+			}
+		}
+
+		// the same count in a file, read in parallel
+		File file = File.createTempFile("scene", ".txt");
+		file.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(file)) {
+			out.println("100000000");
+			for (int i = 0; i < 100; i++)
+				out.println("1,2,3,4,5,6,7,8,9,10,11,12");
+			out.println("0,0,1");
+		}
+		try {
+			SceneLoader.loadTextParallel(file, 0, ForkJoinPool.commonPool(), 100);
+			fail("the count should have been rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("line 1:"));
+		}
+	}
+
+	@Test
+	/**
+	 * Without knowing how big the stream is, a count that's far too big should just run out of lines.
+	 */
+	public void testBadPolygonCountInStream() {
+		String text = "100000000\n1,2,3,4,5,6,7,8,9,10,11,12\n";
+		try {
+			new SceneParser(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))).parse(0);
+			fail("the count should have been rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("line 3:"));
+			assertTrue(e.getMessage(), e.getMessage().contains("expected 100000000 polygons"));
+		}
+	}
+}
+
+// code for COMP261 assignments
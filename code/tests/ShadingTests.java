@@ -4,10 +4,18 @@ import static org.junit.Assert.*;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import org.junit.Test;
 
+import renderer.DepthBuffer;
+import renderer.EdgeList;
+import renderer.FrameBuffer;
+import renderer.LightArray;
+import renderer.MeshBuffer;
 import renderer.Pipeline;
 import renderer.Scene.Polygon;
 import renderer.Vector3D;
@@ -19,6 +27,72 @@ public class ShadingTests {
 
 	/* I ENDED UP COMMENTING OUT THESE TESTS BECAUSE OF THE CHALLENGE/STAGE 4 THINGS I IMPLEMENTED */
 
+	@Test
+	/**
+	 * Shading with the lights packed into arrays should give the same colour as
+	 * working each channel out with setColor from the map of lights, apart from
+	 * rounding, even with lots of lights.
+	 */
+	public void testPackedLightsMatchMap() {
+		Random rand = new Random(261);
+		Map<Vector3D, Color> lights = new LinkedHashMap<>();
+		for (int i = 0; i < 60; i++)
+			lights.put(new Vector3D(rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f, rand.nextFloat() - 0.5f),
+					new Color(rand.nextInt(40), rand.nextInt(40), rand.nextInt(40)));
+		LightArray packed = new LightArray(lights);
+		Color ambient = new Color(30, 60, 90);
+
+		MeshBuffer mesh = new MeshBuffer(200);
+		for (int t = 0; t < mesh.getTriangleCount(); t++) {
+			float[] corners = new float[9];
+			for (int c = 0; c < 9; c++) corners[c] = rand.nextFloat() * 100;
+			mesh.setTriangle(t, corners, rand.nextInt(0x1000000));
+		}
+
+		for (int t = 0; t < mesh.getTriangleCount(); t++) {
+			Vector3D a = mesh.getVertex(t, 0), b = mesh.getVertex(t, 1), c = mesh.getVertex(t, 2);
+			Vector3D normal = b.minus(a).crossProduct(c.minus(b));
+			Color reflectance = new Color(mesh.getColours()[t]);
+
+			int shading = Pipeline.getShading(mesh, t, packed, ambient);
+			assertEquals(Pipeline.setColor(ambient.getRed(), reflectance.getRed() / 255.0f, normal, lights, 0), (shading >> 16) & 0xFF, 1);
+			assertEquals(Pipeline.setColor(ambient.getGreen(), reflectance.getGreen() / 255.0f, normal, lights, 1), (shading >> 8) & 0xFF, 1);
+			assertEquals(Pipeline.setColor(ambient.getBlue(), reflectance.getBlue() / 255.0f, normal, lights, 2), shading & 0xFF, 1);
+		}
+	}
+
+	@Test
+	/**
+	 * With smooth shading the colour at each corner of a triangle should be its reflectance
+	 * times the light at that vertex, and the colour should blend between them across it.
+	 */
+	public void testSmoothShading() {
+		MeshBuffer mesh = new MeshBuffer(1);
+		mesh.setTriangle(0, new float[] { 0, 0, 0, 0, 20, 0, 20, 0, 0 }, 0xFF8000);
+		float[] vertexLights = new float[] { 255, 255, 255, 0, 0, 0, 100, 600, 100 };
+
+		EdgeList el = Pipeline.computeEdgeList(mesh, 0, vertexLights);
+		assertTrue(el.isSmooth());
+
+		// the corner at (0, 0) is fully lit, and the one at (20, 0) has its green clamped
+		assertEquals(255, el.getLeftColour(0, 0), 1e-3);
+		assertEquals(128, el.getLeftColour(0, 1), 1e-3);
+		assertEquals(0, el.getLeftColour(0, 2), 1e-3);
+		assertEquals(100, el.getRightColour(0, 0), 1e-3);
+		assertEquals(255, el.getRightColour(0, 1), 1e-3);
+
+		// the corner at (0, 20) is dark, so half way up the left side is half as bright
+		assertEquals(127.5, el.getLeftColour(10, 0), 1e-3);
+
+		FrameBuffer fb = new FrameBuffer(30, 30);
+		fb.clear();
+		Pipeline.computeZBuffer(fb, new DepthBuffer(30, 30), el, 0);
+		int left = fb.getPixels()[5 * 30 + 1], middle = fb.getPixels()[5 * 30 + 7], right = fb.getPixels()[5 * 30 + 14];
+		assertTrue(((left >> 16) & 0xFF) > ((middle >> 16) & 0xFF));
+		assertTrue(((middle >> 16) & 0xFF) > ((right >> 16) & 0xFF));
+		assertTrue(((left >> 8) & 0xFF) < ((right >> 8) & 0xFF));
+	}
+
 //	@Test
 //	/**
 //	 * An easy one, here there is no directional light only ambient. Polygon
@@ -0,0 +1,194 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import renderer.MeshBuffer;
+import renderer.Pipeline;
+import renderer.Scene;
+import renderer.Transform;
+import renderer.Vector3D;
+
+/**
+ * Checks that moving a scene around only changes its transform, and never the model.
+ */
+public class TransformTests {
+
+	private static Scene scene() {
+		MeshBuffer mesh = new MeshBuffer(2);
+		mesh.setTriangle(0, new float[] { 10, 5, 5, 2, 3, 2, 9, 5, 4 }, 0xFF0000);
+		mesh.setTriangle(1, new float[] { -4, 1, 7, 8, -2, 3, 0, 6, -5 }, 0x00FF00);
+		Map<Vector3D, Color> lights = new LinkedHashMap<>();
+		lights.put(new Vector3D(0, 0, -1), Color.WHITE);
+		return Scene.fromMesh(mesh, lights);
+	}
+
+	@Test
+	/**
+	 * Rotating, scaling and translating shouldn't touch the model's vertices.
+	 */
+	public void testModelUnchanged() {
+		Scene scene = scene();
+		float[] model = scene.getModel().getVertices().clone();
+
+		Pipeline.translateScene(Pipeline.rotateScene(Pipeline.scaleScene(scene), 0.4f, -1.1f));
+
+		assertArrayEquals(model, scene.getModel().getVertices(), 0);
+		assertNotSame(scene.getModel(), scene.getMesh());
+	}
+
+	@Test
+	/**
+	 * The view should be the model with the transform applied.
+	 */
+	public void testViewIsTransformedModel() {
+		Scene scene = Pipeline.rotateScene(scene(), 0.3f, 0.7f);
+
+		float[] model = scene.getModel().getVertices(), view = scene.getMesh().getVertices();
+		for (int v = 0; v < model.length / 3; v++) {
+			Vector3D expected = scene.getTransform().multiply(new Vector3D(model[v * 3], model[v * 3 + 1], model[v * 3 + 2]));
+			assertEquals(expected.x, view[v * 3], 1e-4f);
+			assertEquals(expected.y, view[v * 3 + 1], 1e-4f);
+			assertEquals(expected.z, view[v * 3 + 2], 1e-4f);
+		}
+	}
+
+	@Test
+	/**
+	 * Rotating back and forth lots of times shouldn't let rounding errors build
+	 * up in the view, since it is always worked out from the model.
+	 */
+	public void testNoDrift() {
+		Scene scene = scene();
+		float[] model = scene.getModel().getVertices().clone();
+
+		for (int i = 0; i < 1000; i++) {
+			Pipeline.rotateScene(scene, 0.1f, 0);
+			Pipeline.rotateScene(scene, 0, 0.2f);
+			scene.getMesh();
+			Pipeline.rotateScene(scene, 0, -0.2f);
+			Pipeline.rotateScene(scene, -0.1f, 0);
+			scene.getMesh();
+		}
+
+		assertArrayEquals(model, scene.getMesh().getVertices(), 1e-3f);
+	}
+
+	@Test
+	/**
+	 * The bulk multiply should give exactly the same answer as multiplying one Vector3D at a time,
+	 * whether or not it's writing over its input.
+	 */
+	public void testBulkMultiply() {
+		Transform transform = Transform.newTranslation(3, -2, 7)
+				.compose(Transform.newYRotation(0.7f)).compose(Transform.newXRotation(-1.3f)).compose(Transform.newScale(2, 2, 2));
+
+		Random random = new Random(261);
+		float[] points = new float[300];
+		for (int i = 0; i < points.length; i++)
+			points[i] = (random.nextFloat() - 0.5f) * 1000;
+
+		float[] out = new float[points.length], inPlace = points.clone();
+		transform.multiply(points, out, 100);
+		transform.multiply(inPlace, inPlace, 100);
+
+		for (int v = 0; v < 100; v++) {
+			Vector3D expected = transform.multiply(new Vector3D(points[v * 3], points[v * 3 + 1], points[v * 3 + 2]));
+			assertArrayEquals(new float[] { expected.x, expected.y, expected.z }, Arrays.copyOfRange(out, v * 3, v * 3 + 3), 0);
+		}
+		assertArrayEquals(out, inPlace, 0);
+	}
+
+	@Test
+	/**
+	 * The view's normals are the model's turned by the transform, and should match
+	 * the normals worked out from the view's vertices.
+	 */
+	public void testViewNormals() {
+		Scene scene = Pipeline.translateScene(Pipeline.rotateScene(Pipeline.scaleScene(scene()), -0.6f, 1.3f));
+		MeshBuffer view = scene.getMesh();
+
+		float[] turned = view.getNormals().clone();
+		view.verticesChanged();
+		assertArrayEquals(view.getNormals(), turned, 1e-5f);
+	}
+
+	@Test
+	/**
+	 * The bulk multiply of separate x, y, z arrays should also match multiplying a Vector3D at a time exactly,
+	 * whether it's using the Vector API or not, including the points left over after the last whole vector.
+	 */
+	public void testSeparateArraysMultiply() {
+		Transform transform = Transform.newTranslation(-40, 12, 3)
+				.compose(Transform.newXRotation(0.45f)).compose(Transform.newYRotation(2.1f)).compose(Transform.newScale(3, 3, 3));
+
+		Random random = new Random(262);
+		int count = 101;
+		float[] xs = new float[count], ys = new float[count], zs = new float[count];
+		for (int i = 0; i < count; i++) {
+			xs[i] = (random.nextFloat() - 0.5f) * 1000;
+			ys[i] = (random.nextFloat() - 0.5f) * 1000;
+			zs[i] = (random.nextFloat() - 0.5f) * 1000;
+		}
+
+		float[] outX = new float[count], outY = new float[count], outZ = new float[count];
+		transform.multiply(xs, ys, zs, outX, outY, outZ, count);
+
+		for (int i = 0; i < count; i++) {
+			Vector3D expected = transform.multiply(new Vector3D(xs[i], ys[i], zs[i]));
+			assertArrayEquals(new float[] { expected.x, expected.y, expected.z }, new float[] { outX[i], outY[i], outZ[i] }, 0);
+		}
+	}
+
+	@Test
+	/**
+	 * With no transform the bounding box should be exactly the smallest and largest of each coordinate.
+	 */
+	public void testModelBounds() {
+		assertArrayEquals(new float[] { -4, -2, -5, 10, 6, 7 }, scene().getBounds(), 0);
+	}
+
+	@Test
+	/**
+	 * Once the scene has been moved, every vertex of the view should still be inside the
+	 * bounding box, and the box should be centred on the transformed centre of the model's box.
+	 */
+	public void testViewBounds() {
+		Scene scene = Pipeline.translateScene(Pipeline.rotateScene(Pipeline.scaleScene(scene()), 0.9f, -0.4f));
+		float[] bounds = scene.getBounds(), view = scene.getMesh().getVertices();
+
+		for (int o = 0; o < view.length; o += 3) {
+			for (int axis = 0; axis < 3; axis++) {
+				assertTrue(view[o + axis] >= bounds[axis] - 1e-3f);
+				assertTrue(view[o + axis] <= bounds[axis + 3] + 1e-3f);
+			}
+		}
+
+		Vector3D centre = scene.getTransform().multiply(new Vector3D(3, 2, 1));
+		assertEquals(centre.x, (bounds[0] + bounds[3]) / 2, 1e-3f);
+		assertEquals(centre.y, (bounds[1] + bounds[4]) / 2, 1e-3f);
+		assertEquals(centre.z, (bounds[2] + bounds[5]) / 2, 1e-3f);
+	}
+
+	@Test
+	/**
+	 * A scene with no transform shouldn't need a second copy of its vertices.
+	 */
+	public void testIdentityViewIsModel() {
+		Scene scene = scene();
+		assertSame(scene.getModel(), scene.getMesh());
+	}
+}
+
+// code for COMP261 assignments
@@ -1,13 +1,18 @@
 package tests;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.awt.Color;
 
 import org.junit.Test;
 
+import renderer.DepthBuffer;
 import renderer.EdgeList;
+import renderer.FrameBuffer;
+import renderer.MeshBuffer;
 import renderer.Pipeline;
+import renderer.SpanKernel;
 
 /**
  * @author tony
@@ -193,6 +198,107 @@ public class ZBufferTests {
 		}
 
 	}
+
+	@Test
+	/**
+	 * The same triangle as above, but drawn into a packed int FrameBuffer and
+	 * flat DepthBuffer instead of a Color[][] and float[][].
+	 */
+	public void testColourBetweenTheLinesFrameBuffer() {
+		FrameBuffer fb = new FrameBuffer(10, 10);
+		DepthBuffer db = new DepthBuffer(10, 10);
+		for (int i = 0; i < 10; i++)
+			for (int j = 0; j < 10; j++)
+				db.set(i, j, 50);
+
+		fb.clear();
+		int background = fb.getRGB(5, 5);
+		int col = 0x640000;
+
+		EdgeList el = new EdgeList(0, 10) {
+			public int getStartY() {
+				return 0;
+			}
+
+			public int getEndY() {
+				return 10;
+			}
+
+			public float getLeftX(int y) {
+				return 0;
+			}
+
+			public float getRightX(int y) {
+				return y;
+			}
+
+			public float getLeftZ(int y) {
+				return 25;
+			}
+
+			public float getRightZ(int y) {
+				return 25;
+			}
+		};
+
+		Pipeline.computeZBuffer(fb, db, el, col);
+
+		// the image shares its pixels with the framebuffer, so check it too
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++) {
+				if (i < j) {
+					assertEquals(col, fb.getRGB(i, j));
+					assertEquals(col, fb.getImage().getRGB(i, j) & 0xFFFFFF);
+					assertEquals(25, db.get(i, j), 1e-5);
+				} else {
+					if (i > 0 && j > 0) assertEquals(background, fb.getRGB(i, j));
+					assertEquals(50, db.get(i, j), 1e-5);
+				}
+			}
+		}
+
+	}
+
+	@Test
+	/**
+	 * The Vector API kernel should give exactly the same pixels and depths as the
+	 * scalar one, over triangles big enough for long spans, on top of a depth
+	 * buffer that already has things drawn in it, and clipped to rectangles that
+	 * don't line up with the vectors.
+	 */
+	public void testVectorKernelMatchesScalar() {
+		int size = 100;
+		MeshBuffer mesh = RasterizerTests.randomMesh(200, 17);
+
+		FrameBuffer scalarFb = new FrameBuffer(size, size), vectorFb = new FrameBuffer(size, size);
+		DepthBuffer scalarDb = new DepthBuffer(size, size), vectorDb = new DepthBuffer(size, size);
+		scalarFb.clear();
+		vectorFb.clear();
+		scalarDb.clear();
+		vectorDb.clear();
+
+		for (int i = 0; i < mesh.getTriangleCount(); i++) {
+			if (Pipeline.isHidden(mesh, i)) continue;
+			EdgeList el = Pipeline.computeEdgeList(mesh, i);
+			int col = mesh.getColours()[i];
+
+			// every few triangles only draws an odd sized part of the screen
+			int minX = 0, minY = 0, maxX = size, maxY = size;
+			if (i % 3 == 0) {
+				minX = i % 37;
+				minY = i % 23;
+				maxX = size - i % 29;
+				maxY = size - i % 13;
+			}
+
+			Pipeline.computeZBuffer(scalarFb, scalarDb, el, col, minX, minY, maxX, maxY, SpanKernel.SCALAR);
+			Pipeline.computeZBuffer(vectorFb, vectorDb, el, col, minX, minY, maxX, maxY, SpanKernel.vector());
+		}
+
+		assertArrayEquals(scalarFb.getPixels(), vectorFb.getPixels());
+		for (int p = 0; p < size * size; p++)
+			assertEquals(Float.floatToRawIntBits(scalarDb.getDepths()[p]), Float.floatToRawIntBits(vectorDb.getDepths()[p]));
+	}
 }
 
 //code for COMP261 assignments